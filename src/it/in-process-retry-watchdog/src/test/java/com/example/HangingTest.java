@@ -0,0 +1,26 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class HangingTest {
+    @Test
+    void hangsOnTheFirstRetry() throws Exception {
+        Path failed = Paths.get("target", "hanging-test-failed");
+        if (!Files.exists(failed)) {
+            Files.createFile(failed);
+            fail("fails on the first run");
+        }
+
+        Path hung = Paths.get("target", "hanging-test-hung");
+        if (!Files.exists(hung)) {
+            Files.createFile(hung);
+            TimeUnit.MINUTES.sleep(10);
+        }
+    }
+}
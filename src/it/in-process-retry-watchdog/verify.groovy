@@ -0,0 +1,6 @@
+def log = new File(basedir, 'build.log').text
+
+assert log.contains('Running supertest retry run#1 in-process with -Dtest=com.example.HangingTest')
+assert log.contains('supertest retry run#1: no report written for 5 sec, terminating the surefire forks')
+assert log.contains('Running supertest retry run#2 in-process with -Dtest=com.example.HangingTest')
+assert log =~ /Tests run: 1, Failures: 0, Errors: 0, Skipped: 0, Time elapsed: .* - in com\.example\.HangingTest/
@@ -0,0 +1,20 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.jupiter.api.Test;
+
+class FlakyTest {
+    @Test
+    void passesOnRetry() throws IOException {
+        Path failed = Paths.get("target", "flaky-test-failed");
+        if (!Files.exists(failed)) {
+            Files.createFile(failed);
+            fail("fails on the first run only");
+        }
+    }
+}
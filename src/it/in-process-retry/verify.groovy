@@ -0,0 +1,7 @@
+def log = new File(basedir, 'build.log').text
+
+assert log.contains('Running supertest retry run#1 in-process with -Dtest=com.example.FlakyTest')
+// junit and the JUnit Platform provider were on the test classpath of the in-process run
+assert log =~ /Tests run: 1, Failures: 0, Errors: 0, Skipped: 0, Time elapsed: .* - in com\.example\.FlakyTest/
+assert log.contains('supertest retry run#1 took')
+assert log.contains('with the in-process backend')
@@ -0,0 +1,90 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds the rerun command for a module with many classes, which failed in every way there is:
+ * passed, failed methods, failed as a whole, or did not complete.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RerunCommandBenchmark {
+    @Param({"10000"})
+    int classes;
+
+    // percentage of classes which did not pass
+    @Param({"1", "50"})
+    int failedPercentage;
+
+    private final SuperTestMavenPlugin plugin = new SuperTestMavenPlugin();
+    private Set<String> resolvedTestClasses;
+    // copy of the resolved classes, since creating the command removes the passing ones
+    private Set<String> allTestClasses;
+    private Map<String, List<String>> classNameToTestCaseList;
+
+    @Setup
+    public void setUp() {
+        resolvedTestClasses = new HashSet<>();
+        classNameToTestCaseList = new HashMap<>();
+
+        for (int i = 0; i < classes; i++) {
+            final String className = "com.example.module" + i % 50 + ".Generated" + i + "Test";
+            resolvedTestClasses.add(className);
+
+            if (i % 100 >= failedPercentage) {
+                classNameToTestCaseList.put(className, Collections.emptyList());
+                continue;
+            }
+
+            switch (i % 3) {
+                case 0:
+                    final List<String> testCases = new ArrayList<>();
+                    for (int j = 0; j <= i % 7; j++) {
+                        testCases.add("shouldDoThing" + j);
+                    }
+                    classNameToTestCaseList.put(className, testCases);
+                    break;
+                case 1:
+                    classNameToTestCaseList.put(className, Arrays.asList(""));
+                    break;
+                default:
+                    // did not complete, there is no report
+                    break;
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void copyTestClasses() {
+        allTestClasses = new HashSet<>(resolvedTestClasses);
+    }
+
+    @Benchmark
+    public String createRerunCommand() {
+        return plugin.createRerunCommand(allTestClasses, classNameToTestCaseList);
+    }
+}
@@ -0,0 +1,85 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses a generated surefire report, in which every tenth test case fails.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SurefireReportParserBenchmark {
+    @Param({"100", "1000", "10000", "50000"})
+    int testCases;
+
+    // bytes of system-out captured for every test case
+    @Param({"0", "1024"})
+    int systemOutBytes;
+
+    private File report;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        report = File.createTempFile("TEST-com.example.BenchmarkTest", ".xml");
+
+        final char[] output = new char[systemOutBytes];
+        Arrays.fill(output, 'x');
+        final String systemOut = new String(output);
+
+        try (Writer writer = Files.newBufferedWriter(report.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<testsuite name=\"com.example.BenchmarkTest\" time=\"12.5\" tests=\""
+                    + testCases + "\" errors=\"0\" skipped=\"0\" failures=\"" + testCases / 10
+                    + "\">\n");
+
+            for (int i = 0; i < testCases; i++) {
+                writer.write("  <testcase name=\"test" + i
+                        + "\" classname=\"com.example.BenchmarkTest\" time=\"0.001\">\n");
+                if (i % 10 == 0) {
+                    writer.write("    <failure message=\"expected true\" "
+                            + "type=\"java.lang.AssertionError\">java.lang.AssertionError\n"
+                            + "      at com.example.BenchmarkTest.test" + i
+                            + "(BenchmarkTest.java:42)\n    </failure>\n");
+                }
+                if (systemOutBytes > 0) {
+                    writer.write("    <system-out><![CDATA[" + systemOut + "]]></system-out>\n");
+                }
+                writer.write("  </testcase>\n");
+            }
+
+            writer.write("</testsuite>\n");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(report.toPath());
+    }
+
+    @Benchmark
+    public RunResult parse() throws Exception {
+        return new SurefireReportParser(report).parse();
+    }
+}
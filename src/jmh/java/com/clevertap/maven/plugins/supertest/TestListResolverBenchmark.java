@@ -0,0 +1,82 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.maven.plugin.MojoFailureException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scans a synthetic test classes directory: packages of test classes, their inner classes and
+ * non-test classes, with the default includes and excludes: with surefire's scanner, in
+ * parallel, and from the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TestListResolverBenchmark {
+    @Param({"1000", "10000"})
+    int testClasses;
+
+    private Path testClassesDir;
+    private File cacheFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        final Path root = Files.createTempDirectory("supertest-benchmark");
+        testClassesDir = Files.createDirectory(root.resolve("test-classes"));
+        cacheFile = root.resolve("supertest-test-classes.txt").toFile();
+
+        for (int i = 0; i < testClasses; i++) {
+            final Path pkg = Files.createDirectories(
+                    testClassesDir.resolve("com/example/module" + i % 20 + "/sub" + i % 7));
+            Files.createFile(pkg.resolve("Generated" + i + "Test.class"));
+            Files.createFile(pkg.resolve("Generated" + i + "Test$Inner.class"));
+            Files.createFile(pkg.resolve("Generated" + i + "Helper.class"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(testClassesDir.getParent())) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public List<String> scanDirectories() throws MojoFailureException {
+        return new TestListResolver(null, null, "", testClassesDir.toString()).scanDirectories();
+    }
+
+    @Benchmark
+    public List<String> scanDirectoriesParallel() throws MojoFailureException {
+        return new TestListResolver(null, null, "", testClassesDir.toString(), null, 8)
+                .scanDirectories();
+    }
+
+    @Benchmark
+    public List<String> scanDirectoriesCached() throws MojoFailureException {
+        // every invocation but the first is a cache hit
+        return new TestListResolver(null, null, "", testClassesDir.toString(), cacheFile, 1)
+                .scanDirectories();
+    }
+}
@@ -0,0 +1,128 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the classes referenced by a class file from its constant pool, without loading it.
+ *
+ * <p>Both the class entries and the type descriptors found in the pool's strings are considered,
+ * so field, method and annotation types are included. Constants inlined by the compiler (static
+ * finals of primitive or String type) leave no trace in the pool and cannot be detected.
+ */
+public class ClassDependencyReader {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final Pattern DESCRIPTOR_PATTERN = Pattern.compile("L([\\w$/]+)[;<]");
+
+    private ClassDependencyReader() {
+        // prevents instance creation
+    }
+
+    /**
+     * @return binary names (e.g. {@code com.example.Foo$Bar}) of all referenced classes,
+     *         excluding the class itself
+     */
+    public static Set<String> read(InputStream classFile) throws IOException {
+        final DataInputStream in = new DataInputStream(classFile);
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+
+        // minor and major version
+        in.skipBytes(4);
+
+        final int poolSize = in.readUnsignedShort();
+        final String[] strings = new String[poolSize];
+        final int[] classNameIndexes = new int[poolSize];
+        final List<Integer> classIndexes = new ArrayList<>();
+
+        for (int i = 1; i < poolSize; i++) {
+            final int tag = in.readUnsignedByte();
+
+            switch (tag) {
+                case 1: // Utf8
+                    strings[i] = in.readUTF();
+                    break;
+                case 7: // Class
+                    classNameIndexes[i] = in.readUnsignedShort();
+                    classIndexes.add(i);
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.skipBytes(2);
+                    break;
+                case 15: // MethodHandle
+                    in.skipBytes(3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.skipBytes(4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    // 8 byte constants take up two entries
+                    in.skipBytes(8);
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag + " at " + i);
+            }
+        }
+
+        // access flags
+        in.skipBytes(2);
+        // this_class refers to a Class entry, which in turn refers to the name
+        final String self = strings[classNameIndexes[in.readUnsignedShort()]];
+
+        final Set<String> referenced = new TreeSet<>();
+        for (int index : classIndexes) {
+            String name = strings[classNameIndexes[index]];
+
+            if (name.startsWith("[")) {
+                // array classes are referenced by their descriptor, e.g. [Lcom/example/Foo;
+                addDescriptorTypes(name, referenced);
+            } else {
+                referenced.add(name);
+            }
+        }
+
+        for (String string : strings) {
+            if (string != null && string.indexOf(';') > 0) {
+                addDescriptorTypes(string, referenced);
+            }
+        }
+
+        referenced.remove(self);
+
+        final Set<String> binaryNames = new TreeSet<>();
+        for (String name : referenced) {
+            binaryNames.add(name.replace('/', '.'));
+        }
+
+        return binaryNames;
+    }
+
+    private static void addDescriptorTypes(String descriptor, Set<String> referenced) {
+        Matcher matcher = DESCRIPTOR_PATTERN.matcher(descriptor);
+
+        while (matcher.find()) {
+            referenced.add(matcher.group(1));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.clevertap.maven.plugins.supertest;
+
+import com.clevertap.maven.plugins.supertest.SurefireConsoleParser.TestSetSummary;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Retries test classes which failed in the first run while the first run is still going, as soon
+ * as their failure shows up in the console output.
+ *
+ * <p>Before a class is retried, its report of the first run is parsed and kept, since the retry
+ * overwrites it. This keeps the first run's results (e.g. durations and failures) intact.
+ */
+public class EarlyRetryScheduler {
+    private final ExecutorService slots;
+    private final File reportsDirectory;
+    private final Retrier retrier;
+    private final Log log;
+    private final Set<String> scheduledClasses = ConcurrentHashMap.newKeySet();
+    private final Map<String, RunResult> firstRunResults = new ConcurrentHashMap<>();
+    private final List<Future<?>> retries = Collections.synchronizedList(new ArrayList<>());
+
+    public interface Retrier {
+        /**
+         * Reruns the given failed tests of a class.
+         *
+         * @param failedTestCases failed test methods, or a single empty string if the class
+         *         failed as a whole
+         */
+        void retry(String className, List<String> failedTestCases) throws Exception;
+    }
+
+    /**
+     * @param slots executor on which retries run, its size bounds the concurrent retries
+     */
+    public EarlyRetryScheduler(
+            ExecutorService slots, File reportsDirectory, Retrier retrier, Log log) {
+        this.slots = slots;
+        this.reportsDirectory = reportsDirectory;
+        this.retrier = retrier;
+        this.log = log;
+    }
+
+    /**
+     * Schedules a retry if the line reports a failed test class which was not retried yet.
+     */
+    public void onOutputLine(String line) {
+        final TestSetSummary summary = SurefireConsoleParser.parse(line);
+
+        if (summary != null && summary.isFailed()
+                && scheduledClasses.add(summary.getClassName())) {
+            retries.add(slots.submit(() -> retry(summary.getClassName())));
+        }
+    }
+
+    private void retry(String className) {
+        final File report = new File(reportsDirectory, "TEST-" + className + ".xml");
+        List<String> failedTestCases = Collections.singletonList("");
+
+        try {
+            final RunResult result = new SurefireReportParser(report).parse();
+            firstRunResults.put(className, result);
+            failedTestCases = result.getFailedTestCases();
+        } catch (Exception e) {
+            log.warn("Failed to read the report of " + className + ", retrying the whole class",
+                    e);
+        }
+
+        if (failedTestCases.isEmpty()) {
+            // the console and the report disagree, the report wins
+            return;
+        }
+
+        try {
+            retrier.retry(className, failedTestCases);
+        } catch (Exception e) {
+            log.warn("Early retry of " + className + " failed", e);
+        }
+    }
+
+    /**
+     * Waits for all scheduled retries to finish.
+     *
+     * @return the first run's results of the classes which were retried, keyed by class name
+     */
+    public Map<String, RunResult> awaitRetries() throws InterruptedException {
+        final List<Future<?>> scheduled;
+        synchronized (retries) {
+            scheduled = new ArrayList<>(retries);
+        }
+
+        for (Future<?> retry : scheduled) {
+            try {
+                retry.get();
+            } catch (ExecutionException e) {
+                log.warn("Early retry failed", e.getCause());
+            }
+        }
+
+        return firstRunResults;
+    }
+
+    public Set<String> getScheduledClasses() {
+        return Collections.unmodifiableSet(scheduledClasses);
+    }
+}
@@ -0,0 +1,266 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+
+/**
+ * Appends one JSON object per attempt (the first run, a retry or an early retry) to a JSON Lines
+ * file, so that builds can be analysed without scraping their logs.
+ *
+ * <p>The Maven processes of an attempt are recorded as they finish, and are written as part of
+ * the attempt's event once its reports are parsed. Compiling the project ahead of concurrent
+ * processes is no attempt, its process is written as an event of its own.
+ */
+public class ExecutionTimeline {
+    // a Maven process exited on its own
+    static final String TERMINATION_EXIT = "exit";
+    // a Maven process without output for too long was terminated gracefully
+    static final String TERMINATION_SIGTERM = "sigterm";
+    // a Maven process did not terminate gracefully in time and was killed
+    static final String TERMINATION_SIGKILL = "sigkill";
+    // tests ran inside this Maven
+    static final String TERMINATION_IN_PROCESS = "in-process";
+    // an in-process run did not stop once its forks were terminated, and was left behind
+    static final String TERMINATION_ABANDONED = "abandoned";
+
+    private final File file;
+    private final String project;
+    private final long buildStartTime;
+    private final Queue<ProcessRecord> processes = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param project identifies the module, e.g. groupId:artifactId
+     */
+    public ExecutionTimeline(File file, String project, long buildStartTime) {
+        this.file = file;
+        this.project = project;
+        this.buildStartTime = buildStartTime;
+    }
+
+    public void recordProcess(
+            String descriptor,
+            String command,
+            long startTime,
+            long endTime,
+            int exitCode,
+            String termination) {
+        processes.add(
+                new ProcessRecord(descriptor, command, startTime, endTime, exitCode, termination));
+    }
+
+    /**
+     * Appends the event of an attempt, together with its Maven processes recorded so far.
+     *
+     * @param selectedTests tests the attempt ran, in the format of surefire's test parameter
+     * @param results results of the classes the attempt ran
+     * @param reportParseMillis time taken to parse the reports of the attempt
+     */
+    public synchronized void appendAttempt(
+            String descriptor,
+            String backend,
+            long startTime,
+            long endTime,
+            int exitCode,
+            Collection<String> selectedTests,
+            List<RunResult> results,
+            long reportParseMillis) throws IOException {
+        final StringBuilder json = new StringBuilder("{");
+        field(json, "project", project);
+        field(json, "buildStart", buildStartTime);
+        field(json, "attempt", descriptor);
+        field(json, "backend", backend);
+        field(json, "start", startTime);
+        field(json, "end", endTime);
+        field(json, "durationMillis", endTime - startTime);
+        field(json, "exitCode", exitCode);
+
+        appendProcesses(json, d -> d.equals(descriptor) || d.startsWith(descriptor + " "));
+        json.append(',');
+
+        final Map<String, Double> durations = new TreeMap<>();
+        final List<String> failures = new ArrayList<>();
+        for (RunResult result : results) {
+            durations.put(result.getClassName(), result.getTime());
+            for (String testCase : result.getFailedTestCases()) {
+                failures.add(FlakyTestHistory.testId(result.getClassName(), testCase));
+            }
+        }
+        Collections.sort(failures);
+
+        array(json, "selected", selectedTests);
+        array(json, "failures", failures);
+        field(json, "reportParseMillis", reportParseMillis);
+
+        json.append("\"classDurationsMillis\":{");
+        boolean first = true;
+        for (Map.Entry<String, Double> entry : durations.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            quote(json, entry.getKey());
+            json.append(':').append(Math.round(entry.getValue() * 1000));
+        }
+        json.append("}}\n");
+
+        write(json);
+    }
+
+    /**
+     * Appends the event of compiling the project, together with its Maven process.
+     */
+    public synchronized void appendCompile(String descriptor) throws IOException {
+        final StringBuilder json = new StringBuilder("{");
+        field(json, "project", project);
+        field(json, "buildStart", buildStartTime);
+        field(json, "compile", descriptor);
+        appendProcesses(json, descriptor::equals);
+        json.append("}\n");
+
+        write(json);
+    }
+
+    private void appendProcesses(StringBuilder json, Predicate<String> descriptorFilter) {
+        json.append("\"processes\":[");
+        final List<ProcessRecord> taken = takeProcesses(descriptorFilter);
+        for (int i = 0; i < taken.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            taken.get(i).appendTo(json);
+        }
+        json.append(']');
+    }
+
+    private void write(StringBuilder json) throws IOException {
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        Files.write(file.toPath(), json.toString().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private List<ProcessRecord> takeProcesses(Predicate<String> descriptorFilter) {
+        final List<ProcessRecord> taken = new ArrayList<>();
+        final Iterator<ProcessRecord> iterator = processes.iterator();
+
+        while (iterator.hasNext()) {
+            final ProcessRecord process = iterator.next();
+            if (descriptorFilter.test(process.descriptor)) {
+                taken.add(process);
+                iterator.remove();
+            }
+        }
+
+        return taken;
+    }
+
+    private static void field(StringBuilder json, String name, String value) {
+        quote(json, name);
+        json.append(':');
+        if (value == null) {
+            json.append("null");
+        } else {
+            quote(json, value);
+        }
+        json.append(',');
+    }
+
+    private static void field(StringBuilder json, String name, long value) {
+        quote(json, name);
+        json.append(':').append(value).append(',');
+    }
+
+    private static void array(StringBuilder json, String name, Collection<String> values) {
+        quote(json, name);
+        json.append(":[");
+        boolean first = true;
+        for (String value : values) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            quote(json, value);
+        }
+        json.append("],");
+    }
+
+    static void quote(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    private static class ProcessRecord {
+        private final String descriptor;
+        private final String command;
+        private final long startTime;
+        private final long endTime;
+        private final int exitCode;
+        private final String termination;
+
+        private ProcessRecord(
+                String descriptor,
+                String command,
+                long startTime,
+                long endTime,
+                int exitCode,
+                String termination) {
+            this.descriptor = descriptor;
+            this.command = command;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.exitCode = exitCode;
+            this.termination = termination;
+        }
+
+        private void appendTo(StringBuilder json) {
+            json.append('{');
+            field(json, "descriptor", descriptor);
+            field(json, "command", command);
+            field(json, "start", startTime);
+            field(json, "end", endTime);
+            field(json, "exitCode", exitCode);
+            quote(json, "termination");
+            json.append(':');
+            quote(json, termination);
+            json.append('}');
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Local store of the test classes which failed in the first run of the previous build, with
+ * one class name per line. A build without failures leaves an empty store behind.
+ */
+public class FailedClassesStore {
+    private final File file;
+
+    public FailedClassesStore(File file) {
+        this.file = file;
+    }
+
+    public Set<String> load() throws IOException {
+        final Set<String> failedClasses = new TreeSet<>();
+
+        if (file.isFile()) {
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty()) {
+                    failedClasses.add(line.trim());
+                }
+            }
+        }
+
+        return failedClasses;
+    }
+
+    public void save(Collection<String> failedClasses) throws IOException {
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        Files.write(file.toPath(), new TreeSet<>(failedClasses), StandardCharsets.UTF_8);
+    }
+}
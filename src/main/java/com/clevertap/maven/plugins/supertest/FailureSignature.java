@@ -0,0 +1,108 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Identifies how a test failed: the cause, i.e. the exception type and message, and the top
+ * frames of the stack trace.
+ *
+ * <p>Values which differ between runs of the same failure, e.g. numbers in messages or the names
+ * of generated classes, are normalised, so that a test failing the same way twice has equal
+ * signatures.
+ */
+public class FailureSignature {
+    // frames which identify where the test failed, more would only tell how it got there
+    static final int FRAMES = 3;
+
+    private static final int MAX_MESSAGE_LENGTH = 200;
+    // e.g. ports, durations, ids or hash codes
+    private static final Pattern NUMBER =
+            Pattern.compile("\\b(?:0x)?\\p{XDigit}*\\d\\p{XDigit}*\\b");
+    private static final Pattern GENERATED_CLASS =
+            Pattern.compile("(\\$\\$Lambda|GeneratedMethodAccessor|\\$Proxy)[\\w$/]*");
+
+    private final String cause;
+    private final List<String> frames;
+
+    private FailureSignature(String cause, List<String> frames) {
+        this.cause = cause;
+        this.frames = frames;
+    }
+
+    /**
+     * @param type the failure's type attribute, may be empty
+     * @param message the failure's message attribute, may be empty
+     * @param stackTrace the head of the failure's stack trace, may be truncated anywhere
+     */
+    static FailureSignature of(String type, String message, CharSequence stackTrace) {
+        final String[] lines = stackTrace.toString().split("\r?\n");
+
+        // older surefire versions leave out the attributes, the trace starts with "type: message"
+        final String firstLine = lines[0].trim();
+        if (type.isEmpty()) {
+            final int separator = firstLine.indexOf(": ");
+            type = separator < 0 ? firstLine : firstLine.substring(0, separator);
+            if (message.isEmpty() && separator >= 0) {
+                message = firstLine.substring(separator + 2);
+            }
+        }
+
+        final List<String> frames = new ArrayList<>(FRAMES);
+        for (String line : lines) {
+            final String frame = line.trim();
+            if (frame.startsWith("at ")) {
+                frames.add(GENERATED_CLASS.matcher(frame.substring(3)).replaceAll("$1"));
+
+                if (frames.size() == FRAMES) {
+                    break;
+                }
+            }
+        }
+
+        return new FailureSignature(type + ": " + normalizeMessage(message), frames);
+    }
+
+    private static String normalizeMessage(String message) {
+        final int lineEnd = message.indexOf('\n');
+        String normalized = (lineEnd < 0 ? message : message.substring(0, lineEnd)).trim();
+        normalized = NUMBER.matcher(normalized).replaceAll("#");
+
+        return normalized.length() > MAX_MESSAGE_LENGTH
+                ? normalized.substring(0, MAX_MESSAGE_LENGTH)
+                : normalized;
+    }
+
+    /**
+     * @return the exception type and normalised message, shared by tests failing for the same
+     *         reason in different places
+     */
+    public String getCause() {
+        return cause;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FailureSignature)) {
+            return false;
+        }
+
+        final FailureSignature that = (FailureSignature) o;
+        return cause.equals(that.cause) && frames.equals(that.frames);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(cause, frames);
+    }
+
+    @Override
+    public String toString() {
+        return frames.isEmpty() ? cause : cause + " at " + String.join(" < ", frames);
+    }
+}
@@ -0,0 +1,91 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Tracks how failed tests failed across the attempts of a build, to tell failures which are
+ * reproduced on a rerun, and thus are not worth retrying again, from flaky ones.
+ */
+public class FailureSignatureTracker {
+    // test (className#method) to the signature of its most recent failure
+    private final Map<String, FailureSignature> signatures = new HashMap<>();
+
+    /**
+     * Records the signatures of the failed tests in the results, replacing earlier ones.
+     *
+     * @param rerun tests which were rerun since signatures were recorded last, i.e. whose
+     *         results are new
+     * @return tests among the rerun ones which failed with the same signature again
+     */
+    public Set<String> update(List<RunResult> results, Set<String> rerun) {
+        final Set<String> reproduced = new TreeSet<>();
+
+        for (RunResult result : results) {
+            for (String testCase : result.getFailedTestCases()) {
+                final String test = FlakyTestHistory.testId(result.getClassName(), testCase);
+                final FailureSignature signature = result.getFailureSignature(testCase);
+                if (signature == null) {
+                    signatures.remove(test);
+                    continue;
+                }
+
+                final FailureSignature previous = signatures.put(test, signature);
+                if (rerun.contains(test) && signature.equals(previous)) {
+                    reproduced.add(test);
+                }
+            }
+        }
+
+        return reproduced;
+    }
+
+    /**
+     * @return the signature of the test's most recent failure, or null if it's unknown
+     */
+    public FailureSignature getSignature(String test) {
+        return signatures.get(test);
+    }
+
+    /**
+     * Finds a cause which most failures share, e.g. a database which did not start, in which
+     * case retries are bound to fail as well.
+     *
+     * @param threshold share of the failed tests, above which a cause is dominant
+     * @param minFailures number of failed tests below which no cause is dominant
+     * @return the dominant cause, or null if there is none
+     */
+    static String findDominantCause(List<RunResult> results, double threshold, int minFailures) {
+        final Map<String, Integer> counts = new HashMap<>();
+        int failures = 0;
+
+        for (RunResult result : results) {
+            for (String testCase : result.getFailedTestCases()) {
+                failures++;
+
+                final FailureSignature signature = result.getFailureSignature(testCase);
+                if (signature != null) {
+                    counts.merge(signature.getCause(), 1, Integer::sum);
+                }
+            }
+        }
+
+        if (failures == 0 || failures < minFailures) {
+            return null;
+        }
+
+        Map.Entry<String, Integer> mostCommon = null;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (mostCommon == null || entry.getValue() > mostCommon.getValue()) {
+                mostCommon = entry;
+            }
+        }
+
+        return mostCommon != null && (double) mostCommon.getValue() / failures > threshold
+                ? mostCommon.getKey()
+                : null;
+    }
+}
@@ -0,0 +1,184 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only history of what happened to tests which failed in the first run of a build:
+ * either they passed on a retry, or they kept failing until retries were exhausted.
+ *
+ * <p>Each line of the history file is {@code <build time millis>\t<test>\t<P|F|W>}, where the
+ * test is {@code className#method}, or just {@code className} for class level failures.
+ *
+ * <p>Tests known to fail deterministically are withheld from retries (W), which leaves no new
+ * outcome to learn from. So once a test was withheld in {@code minSamples} builds in a row, it is
+ * retried again, and classified by the outcome of that retry.
+ */
+public class FlakyTestHistory {
+    static final char PASSED_ON_RETRY = 'P';
+    static final char FAILED_AFTER_RETRY = 'F';
+    static final char WITHHELD = 'W';
+
+    // only the most recent retry outcomes of each test are considered
+    private static final int WINDOW = 20;
+
+    private final File file;
+    private final double flakyThreshold;
+    private final int minSamples;
+    private final Map<String, Deque<Character>> outcomes = new HashMap<>();
+
+    /**
+     * @param flakyThreshold pass-on-retry rate above which a test is considered flaky
+     * @param minSamples number of outcomes needed before a test is classified
+     */
+    public FlakyTestHistory(File file, double flakyThreshold, int minSamples) {
+        this.file = file;
+        this.flakyThreshold = flakyThreshold;
+        this.minSamples = Math.max(1, minSamples);
+    }
+
+    static String testId(String className, String testCase) {
+        return testCase.isEmpty() ? className : className + "#" + testCase;
+    }
+
+    public FlakyTestHistory load() throws IOException {
+        outcomes.clear();
+
+        if (!file.isFile()) {
+            return this;
+        }
+
+        try (BufferedReader reader =
+                Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+
+                // ignore lines which are malformed, e.g. due to an interrupted write
+                if (fields.length == 3 && fields[2].length() == 1) {
+                    addOutcome(fields[1], fields[2].charAt(0));
+                }
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Appends the outcomes of a build to the history.
+     *
+     * @param outcomes for each test, whether it passed on a retry
+     */
+    public void append(long buildTime, Map<String, Boolean> outcomes) throws IOException {
+        append(buildTime, outcomes, Collections.emptySet());
+    }
+
+    /**
+     * Appends the outcomes of a build to the history.
+     *
+     * @param outcomes for each test, whether it passed on a retry
+     * @param withheld tests which were not retried, since they were known to fail
+     *         deterministically
+     */
+    public void append(long buildTime, Map<String, Boolean> outcomes, Collection<String> withheld)
+            throws IOException {
+        if (outcomes.isEmpty() && withheld.isEmpty()) {
+            return;
+        }
+
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        StringBuilder lines = new StringBuilder();
+
+        for (Map.Entry<String, Boolean> entry : outcomes.entrySet()) {
+            char outcome = entry.getValue() ? PASSED_ON_RETRY : FAILED_AFTER_RETRY;
+            lines.append(buildTime).append('\t').append(entry.getKey()).append('\t')
+                    .append(outcome).append('\n');
+            addOutcome(entry.getKey(), outcome);
+        }
+
+        for (String test : withheld) {
+            lines.append(buildTime).append('\t').append(test).append('\t').append(WITHHELD)
+                    .append('\n');
+            addOutcome(test, WITHHELD);
+        }
+
+        // a single write per build keeps concurrent builds from interleaving lines
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(lines.toString());
+        }
+    }
+
+    /**
+     * @return true if the test passed on a retry often enough to be considered flaky
+     */
+    public boolean isKnownFlaky(String test) {
+        return countRetryOutcomes(test) >= minSamples
+                && getPassOnRetryRate(test) > flakyThreshold;
+    }
+
+    /**
+     * @return true if the test never passed on a retry, in enough builds to be sure of it, and
+     *         was not withheld from retries for too long to still be sure of it
+     */
+    public boolean isKnownDeterministic(String test) {
+        Deque<Character> testOutcomes = outcomes.get(test);
+        return countRetryOutcomes(test) >= minSamples
+                && !testOutcomes.contains(PASSED_ON_RETRY)
+                && testOutcomes.stream().filter(o -> o == WITHHELD).count() < minSamples;
+    }
+
+    /**
+     * @return true if the test was retried in any of the builds in the history
+     */
+    public boolean hasOutcomes(String test) {
+        return countRetryOutcomes(test) > 0;
+    }
+
+    public double getPassOnRetryRate(String test) {
+        final int retried = countRetryOutcomes(test);
+
+        if (retried == 0) {
+            return 0;
+        }
+
+        long passed = outcomes.get(test).stream().filter(o -> o == PASSED_ON_RETRY).count();
+        return (double) passed / retried;
+    }
+
+    private int countRetryOutcomes(String test) {
+        Deque<Character> testOutcomes = outcomes.get(test);
+        return testOutcomes == null
+                ? 0
+                : (int) testOutcomes.stream().filter(o -> o != WITHHELD).count();
+    }
+
+    private void addOutcome(String test, char outcome) {
+        Deque<Character> testOutcomes = outcomes.computeIfAbsent(test, t -> new ArrayDeque<>());
+
+        if (outcome == WITHHELD) {
+            testOutcomes.addLast(outcome);
+            return;
+        }
+
+        // only the builds a test was withheld in since its last retry matter
+        testOutcomes.removeIf(o -> o == WITHHELD);
+        testOutcomes.addLast(outcome);
+
+        if (testOutcomes.size() > WINDOW) {
+            testOutcomes.removeFirst();
+        }
+    }
+}
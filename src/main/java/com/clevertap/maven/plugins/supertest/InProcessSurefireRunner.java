@@ -0,0 +1,163 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.util.Map;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.BuildPluginManager;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.descriptor.MojoDescriptor;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.configuration.PlexusConfiguration;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * Runs the surefire test goal of the current project inside the running Maven, reusing its
+ * session, instead of spawning a new Maven process.
+ *
+ * <p>This saves the bootstrap, plugin resolution and project model building of a new process,
+ * but Maven profiles and options cannot be changed for the run, since the session is shared.
+ */
+public class InProcessSurefireRunner {
+    static final String SUREFIRE_PLUGIN_KEY = "org.apache.maven.plugins:maven-surefire-plugin";
+    private static final String EXECUTION_ID = "default-test";
+
+    private final BuildPluginManager pluginManager;
+    private final MavenSession session;
+    private final MavenProject project;
+    private final Log log;
+
+    private MojoDescriptor mojoDescriptor;
+
+    public InProcessSurefireRunner(
+            BuildPluginManager pluginManager, MavenSession session, MavenProject project, Log log) {
+        this.pluginManager = pluginManager;
+        this.session = session;
+        this.project = project;
+        this.log = log;
+    }
+
+    /**
+     * @return true if the project's surefire plugin can be run in-process
+     */
+    public boolean isAvailable() {
+        return pluginManager != null && session != null
+                && project.getPlugin(SUREFIRE_PLUGIN_KEY) != null;
+    }
+
+    /**
+     * @param test the tests to run, in the format of surefire's test parameter
+     * @return 0 if all tests passed, otherwise 1
+     */
+    public int run(String test) {
+        final Plugin plugin = project.getPlugin(SUREFIRE_PLUGIN_KEY);
+
+        try {
+            if (mojoDescriptor == null) {
+                mojoDescriptor = pluginManager.getMojoDescriptor(plugin, "test",
+                        project.getRemotePluginRepositories(), session.getRepositorySession());
+            }
+
+            final MojoExecution execution = new MojoExecution(mojoDescriptor, EXECUTION_ID);
+            final Xpp3Dom configuration = createConfiguration(getProjectConfiguration(plugin),
+                    toXpp3Dom(mojoDescriptor.getMojoConfiguration()));
+            setChild(configuration, "test", test);
+            execution.setConfiguration(configuration);
+
+            forgetEarlierRuns();
+
+            final MavenProject currentProject = session.getCurrentProject();
+            session.setCurrentProject(project);
+            try {
+                pluginManager.executeMojo(session, execution);
+            } finally {
+                session.setCurrentProject(currentProject);
+            }
+
+            return 0;
+        } catch (MojoFailureException e) {
+            // surefire reports test failures this way
+            log.info("In-process surefire run failed: " + e.getMessage());
+            return 1;
+        } catch (Exception e) {
+            log.error("In-process surefire run failed unexpectedly", e);
+            return 1;
+        }
+    }
+
+    /**
+     * Surefire skips a run if it has run with the same configuration in the session before, which
+     * a retry of the same tests does. It remembers these runs by the checksum of their
+     * configuration, which is both key and value in the plugin context.
+     */
+    private void forgetEarlierRuns() {
+        final Map<String, Object> pluginContext =
+                session.getPluginContext(mojoDescriptor.getPluginDescriptor(), project);
+        pluginContext.entrySet().removeIf(entry -> entry.getKey().equals(entry.getValue()));
+    }
+
+    /**
+     * @return the surefire configuration of the project, including the one of the default test
+     *         execution
+     */
+    private static Xpp3Dom getProjectConfiguration(Plugin plugin) {
+        Xpp3Dom configuration = (Xpp3Dom) plugin.getConfiguration();
+        final PluginExecution execution = plugin.getExecutionsAsMap().get(EXECUTION_ID);
+
+        if (execution != null && execution.getConfiguration() != null) {
+            configuration = Xpp3Dom.mergeXpp3Dom(
+                    new Xpp3Dom((Xpp3Dom) execution.getConfiguration()), configuration);
+        }
+
+        return configuration;
+    }
+
+    /**
+     * Merges the project's configuration with the mojo's defaults, leaving out everything which
+     * is not a parameter of the mojo, like Maven does when planning a build.
+     */
+    static Xpp3Dom createConfiguration(Xpp3Dom projectConfiguration, Xpp3Dom defaults) {
+        final Xpp3Dom configuration = new Xpp3Dom("configuration");
+
+        for (Xpp3Dom defaultChild : defaults.getChildren()) {
+            final Xpp3Dom child = projectConfiguration != null
+                    ? projectConfiguration.getChild(defaultChild.getName())
+                    : null;
+
+            configuration.addChild(child != null
+                    ? Xpp3Dom.mergeXpp3Dom(new Xpp3Dom(child), new Xpp3Dom(defaultChild))
+                    : new Xpp3Dom(defaultChild));
+        }
+
+        return configuration;
+    }
+
+    static void setChild(Xpp3Dom configuration, String name, String value) {
+        for (int i = configuration.getChildCount() - 1; i >= 0; i--) {
+            if (configuration.getChild(i).getName().equals(name)) {
+                configuration.removeChild(i);
+            }
+        }
+
+        final Xpp3Dom child = new Xpp3Dom(name);
+        child.setValue(value);
+        configuration.addChild(child);
+    }
+
+    static Xpp3Dom toXpp3Dom(PlexusConfiguration configuration) {
+        final Xpp3Dom dom = new Xpp3Dom(configuration.getName());
+        dom.setValue(configuration.getValue(null));
+
+        for (String attribute : configuration.getAttributeNames()) {
+            dom.setAttribute(attribute, configuration.getAttribute(attribute, null));
+        }
+
+        for (PlexusConfiguration child : configuration.getChildren()) {
+            dom.addChild(toXpp3Dom(child));
+        }
+
+        return dom;
+    }
+}
@@ -0,0 +1,208 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Pumps the output of a child process: reads it in bulk, writes it as is to an optional log file,
+ * and hands over the lines to be logged in batches, one batch per read.
+ *
+ * <p>Every line is passed to the line listener, whatever the verbosity, so that output parsing
+ * does not depend on what is logged. Lines longer than {@link #MAX_LINE_LENGTH} bytes, e.g. of a
+ * progress bar which never ends its line, are split, so that they are not buffered without limit.
+ */
+public class OutputPump {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // in bytes, like the stack traces kept from the reports
+    static final int MAX_LINE_LENGTH = 4096;
+    // the longest encoding of a character in UTF-8, less its first byte
+    private static final int MAX_CONTINUATION_BYTES = 3;
+
+    /**
+     * Which lines of the output are forwarded to the Maven log.
+     */
+    public enum Verbosity {
+        // every line
+        ALL,
+        // errors, failed test classes and the test totals
+        FAILURES,
+        // the test totals and the build result only
+        SUMMARY;
+
+        public static Verbosity of(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+
+        boolean forwards(String line) {
+            switch (this) {
+                case ALL:
+                    return true;
+                case FAILURES:
+                    return line.contains("[ERROR]") || line.contains("<<< FAILURE!")
+                            || line.contains("<<< ERROR!") || isSummary(line);
+                default:
+                    return isSummary(line);
+            }
+        }
+
+        private static boolean isSummary(String line) {
+            return (line.contains("Tests run: ") && !line.contains(" - in "))
+                    || line.contains("BUILD SUCCESS") || line.contains("BUILD FAILURE");
+        }
+    }
+
+    private final InputStream in;
+    private final String descriptor;
+    private final File logFile;
+    private final Verbosity verbosity;
+    private final Consumer<String> lineListener;
+    private final Consumer<List<String>> logSink;
+    private final AtomicLong lastOutputTime;
+    private final int bufferSize;
+    private final Charset charset = Charset.defaultCharset();
+
+    /**
+     * @param logFile file the whole output is written to, or null
+     * @param logSink receives the lines to be logged, prefixed with the descriptor
+     * @param lastOutputTime updated whenever output is read
+     */
+    public OutputPump(
+            InputStream in,
+            String descriptor,
+            File logFile,
+            Verbosity verbosity,
+            Consumer<String> lineListener,
+            Consumer<List<String>> logSink,
+            AtomicLong lastOutputTime) {
+        this(in, descriptor, logFile, verbosity, lineListener, logSink, lastOutputTime,
+                BUFFER_SIZE);
+    }
+
+    OutputPump(
+            InputStream in,
+            String descriptor,
+            File logFile,
+            Verbosity verbosity,
+            Consumer<String> lineListener,
+            Consumer<List<String>> logSink,
+            AtomicLong lastOutputTime,
+            int bufferSize) {
+        this.in = in;
+        this.descriptor = descriptor;
+        this.logFile = logFile;
+        this.verbosity = verbosity;
+        this.lineListener = lineListener;
+        this.logSink = logSink;
+        this.lastOutputTime = lastOutputTime;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Pumps the output until the end of the stream.
+     */
+    public void run() throws IOException {
+        if (logFile == null) {
+            pump(null);
+            return;
+        }
+
+        Files.createDirectories(logFile.getAbsoluteFile().getParentFile().toPath());
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            pump(channel);
+        }
+    }
+
+    private void pump(FileChannel channel) throws IOException {
+        final byte[] buffer = new byte[bufferSize];
+        // the start of a line which continues in the next read
+        final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+        int read;
+
+        while ((read = in.read(buffer)) != -1) {
+            lastOutputTime.set(System.currentTimeMillis());
+
+            if (channel != null) {
+                final ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+            }
+
+            final List<String> logged = new ArrayList<>();
+            int lineStart = 0;
+
+            // '\n' never occurs within a multi-byte character of the supported encodings
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    handleLine(takeLine(partialLine, buffer, lineStart, i), logged);
+                    lineStart = i + 1;
+                } else if (partialLine.size() + i - lineStart >= MAX_LINE_LENGTH) {
+                    // the line is split before the character the byte at i belongs to
+                    int end = i;
+                    for (int j = 0; j < MAX_CONTINUATION_BYTES && end > lineStart + 1
+                            && (buffer[end] & 0xC0) == 0x80; j++) {
+                        end--;
+                    }
+
+                    handleLine(takeLine(partialLine, buffer, lineStart, end), logged);
+                    lineStart = end;
+                }
+            }
+
+            partialLine.write(buffer, lineStart, read - lineStart);
+
+            if (!logged.isEmpty()) {
+                logSink.accept(logged);
+            }
+        }
+
+        if (partialLine.size() > 0) {
+            final List<String> logged = new ArrayList<>();
+            handleLine(new String(partialLine.toByteArray(), charset), logged);
+
+            if (!logged.isEmpty()) {
+                logSink.accept(logged);
+            }
+        }
+    }
+
+    /**
+     * @return the partial line followed by the given bytes of the buffer, after which the partial
+     *         line is empty
+     */
+    private String takeLine(ByteArrayOutputStream partialLine, byte[] buffer, int start, int end) {
+        if (partialLine.size() == 0) {
+            return new String(buffer, start, end - start, charset);
+        }
+
+        partialLine.write(buffer, start, end - start);
+        final String line = new String(partialLine.toByteArray(), charset);
+        partialLine.reset();
+        return line;
+    }
+
+    private void handleLine(String line, List<String> logged) {
+        if (line.endsWith("\r")) {
+            line = line.substring(0, line.length() - 1);
+        }
+
+        lineListener.accept(line);
+
+        if (verbosity.forwards(line)) {
+            logged.add(descriptor + ": " + line);
+        }
+    }
+}
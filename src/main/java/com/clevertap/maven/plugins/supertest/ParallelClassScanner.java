@@ -0,0 +1,119 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import org.apache.maven.surefire.testset.TestFilter;
+
+/**
+ * Finds the classes in a directory which pass a filter, like surefire's {@code DirectoryScanner},
+ * but lists the subdirectories in parallel, which pays off on file systems with a high latency
+ * per operation, e.g. network or overlay file systems.
+ *
+ * <p>The semantics are surefire's: links are followed, files ending in ".class" (in any case) are
+ * matched by their relative path with a ".class" extension, and unreadable directories are
+ * skipped.
+ */
+public class ParallelClassScanner {
+    private static final String EXTENSION = ".class";
+
+    private final File basedir;
+    private final TestFilter<String, String> filter;
+    private final int parallelism;
+
+    /**
+     * @param parallelism number of directories listed at a time
+     */
+    public ParallelClassScanner(
+            File basedir, TestFilter<String, String> filter, int parallelism) {
+        this.basedir = basedir;
+        this.filter = filter;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return fully qualified names of the classes which pass the filter, in no specific order
+     */
+    public List<String> scan() {
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(new DirectoryTask(basedir.toPath(), "", ""));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private final class DirectoryTask extends RecursiveTask<List<String>> {
+        // tasks are never serialized, RecursiveTask just happens to be Serializable
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        // package and relative path of the directory, empty for the base directory
+        private final String packageName;
+        private final String path;
+
+        DirectoryTask(Path directory, String packageName, String path) {
+            this.directory = directory;
+            this.packageName = packageName;
+            this.path = path;
+        }
+
+        @Override
+        protected List<String> compute() {
+            final List<String> classes = new ArrayList<>();
+            final List<DirectoryTask> subdirectories = new ArrayList<>();
+
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    visit(entry, classes, subdirectories);
+                }
+            } catch (IOException e) {
+                // like File.listFiles() returning null
+                return classes;
+            }
+
+            for (DirectoryTask subdirectory : invokeAll(subdirectories)) {
+                classes.addAll(subdirectory.join());
+            }
+
+            return classes;
+        }
+
+        private void visit(Path entry, List<String> classes, List<DirectoryTask> subdirectories) {
+            final String name = entry.getFileName().toString();
+            final BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+            } catch (IOException e) {
+                // e.g. a broken link, which is neither a file nor a directory
+                return;
+            }
+
+            if (attributes.isRegularFile()) {
+                final int simpleNameLength = name.length() - EXTENSION.length();
+                if (simpleNameLength > 0 && name.regionMatches(
+                        true, simpleNameLength, EXTENSION, 0, EXTENSION.length())) {
+                    final String simpleName = name.substring(0, simpleNameLength);
+
+                    if (filter.shouldRun(
+                            (path.isEmpty() ? "" : path + '/') + simpleName + EXTENSION, null)) {
+                        classes.add(packageName.isEmpty()
+                                ? simpleName
+                                : packageName + '.' + simpleName);
+                    }
+                }
+            } else if (attributes.isDirectory()) {
+                subdirectories.add(new DirectoryTask(entry,
+                        packageName.isEmpty() ? name : packageName + '.' + name,
+                        path.isEmpty() ? name : path + '/' + name));
+            }
+        }
+    }
+}
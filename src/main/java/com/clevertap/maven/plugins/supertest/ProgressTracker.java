@@ -0,0 +1,135 @@
+package com.clevertap.maven.plugins.supertest;
+
+import com.clevertap.maven.plugins.supertest.SurefireConsoleParser.TestSetSummary;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live progress of a single attempt (the first run or a retry), counted from the per-class
+ * summary lines surefire prints to the console.
+ *
+ * <p>The time remaining is estimated from the recorded durations of the classes: the pace at
+ * which their recorded time is completed so far is assumed for the rest of them.
+ */
+public class ProgressTracker {
+    private final String descriptor;
+    private final Collection<String> classes;
+    private final Map<String, Long> durations;
+    private final long startTime;
+    private final long expectedMillis;
+
+    private final Set<String> completedClasses = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger testsRun = new AtomicInteger();
+    private final AtomicInteger testsFailed = new AtomicInteger();
+    private final AtomicInteger testsSkipped = new AtomicInteger();
+    private final AtomicLong completedExpectedMillis = new AtomicLong();
+
+    /**
+     * @param classes test classes expected to run in this attempt
+     * @param durations recorded durations in milliseconds, keyed by class name
+     */
+    public ProgressTracker(
+            String descriptor, Collection<String> classes, Map<String, Long> durations,
+            long startTime) {
+        this.descriptor = descriptor;
+        this.classes = classes;
+        this.durations = durations;
+        this.startTime = startTime;
+
+        long expected = 0;
+        for (String className : classes) {
+            expected += durations.getOrDefault(className, 0L);
+        }
+        this.expectedMillis = expected;
+    }
+
+    public void onOutputLine(String line) {
+        final TestSetSummary summary = SurefireConsoleParser.parse(line);
+
+        // with several forks or retries of a class, only its first completion counts
+        if (summary == null || !completedClasses.add(summary.getClassName())) {
+            return;
+        }
+
+        testsRun.addAndGet(summary.getTestsRun());
+        testsFailed.addAndGet(summary.getFailures() + summary.getErrors());
+        testsSkipped.addAndGet(summary.getSkipped());
+        completedExpectedMillis.addAndGet(durations.getOrDefault(summary.getClassName(), 0L));
+    }
+
+    public String getStatusLine(long now) {
+        final long elapsed = Math.max(0, now - startTime);
+        final long remaining = getRemainingMillis(elapsed);
+
+        return descriptor + " progress: " + completedClasses.size() + "/" + classes.size()
+                + " classes, " + testsRun.get() + " tests, " + testsFailed.get() + " failed, "
+                + formatRate(elapsed) + " tests/s, elapsed " + formatDuration(elapsed)
+                + ", remaining " + (remaining < 0 ? "unknown" : "~" + formatDuration(remaining));
+    }
+
+    public String getSummary(long now) {
+        final long elapsed = Math.max(0, now - startTime);
+
+        return descriptor + " summary: " + completedClasses.size() + "/" + classes.size()
+                + " classes completed, " + testsRun.get() + " tests (" + testsFailed.get()
+                + " failed, " + testsSkipped.get() + " skipped) in " + formatDuration(elapsed)
+                + ", " + formatRate(elapsed) + " tests/s";
+    }
+
+    /**
+     * @return estimated milliseconds remaining, or -1 if there is nothing to base it on yet
+     */
+    long getRemainingMillis(long elapsed) {
+        final long completedExpected = completedExpectedMillis.get();
+
+        if (completedExpected > 0 && elapsed > 0) {
+            // the rate at which recorded time is completed includes the effect of concurrency
+            return Math.round((expectedMillis - completedExpected)
+                    * ((double) elapsed / completedExpected));
+        }
+
+        final int completed = completedClasses.size();
+        if (completed > 0 && elapsed > 0) {
+            // nothing recorded for the completed classes, fall back to their count
+            return Math.round(
+                    Math.max(0, classes.size() - completed) * ((double) elapsed / completed));
+        }
+
+        return -1;
+    }
+
+    public int getCompletedClasses() {
+        return completedClasses.size();
+    }
+
+    public int getTestsRun() {
+        return testsRun.get();
+    }
+
+    public int getTestsFailed() {
+        return testsFailed.get();
+    }
+
+    private String formatRate(long elapsed) {
+        final double rate = elapsed > 0 ? testsRun.get() * 1000.0 / elapsed : 0;
+        return String.format(Locale.ROOT, "%.1f", rate);
+    }
+
+    static String formatDuration(long millis) {
+        final long hours = TimeUnit.MILLISECONDS.toHours(millis);
+        final long minutes = TimeUnit.MILLISECONDS.toMinutes(millis) % 60;
+        final long seconds = TimeUnit.MILLISECONDS.toSeconds(millis) % 60;
+
+        if (hours > 0) {
+            return hours + "h " + minutes + "m " + seconds + "s";
+        }
+
+        return minutes > 0 ? minutes + "m " + seconds + "s" : seconds + "s";
+    }
+}
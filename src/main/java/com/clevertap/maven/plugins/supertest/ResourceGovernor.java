@@ -0,0 +1,161 @@
+package com.clevertap.maven.plugins.supertest;
+
+import com.clevertap.maven.plugins.supertest.util.SystemResources;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Admits Maven processes only while the machine has headroom for another one.
+ *
+ * <p>The capacity, i.e. the max number of concurrent processes, is sized from the cgroup CPU quota
+ * and memory limit. Below the capacity, a process is admitted only while the load average is
+ * below the number of CPUs and there is enough free memory for it. A process is always admitted
+ * when none is running, so that the build never stalls.
+ *
+ * <p>The load average and the free memory take a while to reflect a process which just started,
+ * so processes admitted within the last {@link #RAMP_UP_MILLIS} are counted as one CPU of load
+ * and their memory per run each, on top of what is measured.
+ */
+public class ResourceGovernor {
+    private static final long MB = 1024 * 1024;
+    // the span of the 1 minute load average, which a new process takes to show up in
+    static final long RAMP_UP_MILLIS = 60_000;
+
+    private final SystemResources resources;
+    private final long memoryPerRun;
+    private final long pollMillis;
+    private final Log log;
+    private final int capacity;
+    private int running;
+    // when each running process was admitted, by descriptor
+    private final Map<String, Long> admissionTimes = new HashMap<>();
+
+    /**
+     * @param memoryPerRun memory in bytes a single Maven process, including its forks, needs
+     * @param pollMillis how often the headroom is checked while a process waits for admission
+     */
+    public ResourceGovernor(
+            SystemResources resources, long memoryPerRun, long pollMillis, Log log) {
+        this.resources = resources;
+        this.memoryPerRun = memoryPerRun;
+        this.pollMillis = pollMillis;
+        this.log = log;
+
+        final double cpuLimit = resources.getCpuLimit();
+        final long memoryLimit = resources.getMemoryLimit();
+        int size = Math.max(1, (int) cpuLimit);
+        if (memoryLimit > 0 && memoryPerRun > 0) {
+            size = Math.min(size, (int) Math.max(1, memoryLimit / memoryPerRun));
+        }
+        this.capacity = size;
+
+        log.info("Resource governor: capacity of " + capacity + " concurrent Maven processes ("
+                + format(cpuLimit) + " CPUs, memory limit "
+                + (memoryLimit > 0 ? memoryLimit / MB + " MB" : "none") + ", "
+                + memoryPerRun / MB + " MB per process)");
+    }
+
+    /**
+     * Waits until the process may start. Every admission must be followed by a {@link
+     * #release(String)}.
+     */
+    public synchronized void acquire(String descriptor) throws InterruptedException {
+        final long waitStart = System.currentTimeMillis();
+        String lastReason = null;
+
+        while (true) {
+            final String reason = getDenialReason();
+            if (reason == null) {
+                break;
+            }
+
+            // the same reason is logged once, not on every check
+            if (!reason.equals(lastReason)) {
+                log.info("Resource governor: " + descriptor + " waits, " + reason);
+                lastReason = reason;
+            }
+
+            wait(pollMillis);
+        }
+
+        running++;
+        admissionTimes.put(descriptor, System.currentTimeMillis());
+        log.info("Resource governor: " + descriptor + " admitted"
+                + (lastReason != null
+                        ? " after " + (System.currentTimeMillis() - waitStart) + " ms"
+                        : "")
+                + ", " + running + "/" + capacity + " running, " + describeHeadroom());
+    }
+
+    public synchronized void release(String descriptor) {
+        running--;
+        admissionTimes.remove(descriptor);
+        log.debug("Resource governor: " + descriptor + " finished, " + running + "/" + capacity
+                + " running");
+        notifyAll();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * @return why another process may not start now, or null if it may
+     */
+    String getDenialReason() {
+        if (running == 0) {
+            return null;
+        }
+
+        if (running >= capacity) {
+            return running + "/" + capacity + " running";
+        }
+
+        final int starting = countStarting(System.currentTimeMillis());
+        final double load = resources.getLoadAverage();
+        final int cpus = resources.getMachineCpus();
+        if (load + starting >= cpus) {
+            return "load average " + format(load) + " and " + starting + " starting of " + cpus
+                    + " CPUs";
+        }
+
+        final long available = resources.getAvailableMemory();
+        if (available >= 0 && available - starting * memoryPerRun < memoryPerRun) {
+            return available / MB + " MB of memory available and " + starting + " starting";
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the running processes which were admitted too recently to show in the load average
+     *         and the free memory
+     */
+    private int countStarting(long now) {
+        int starting = 0;
+        for (long admissionTime : admissionTimes.values()) {
+            if (now - admissionTime < RAMP_UP_MILLIS) {
+                starting++;
+            }
+        }
+
+        return starting;
+    }
+
+    private String describeHeadroom() {
+        final long available = resources.getAvailableMemory();
+        return "load average " + format(resources.getLoadAverage()) + " of "
+                + resources.getMachineCpus() + " CPUs, "
+                + (available >= 0 ? available / MB + " MB" : "unknown") + " memory available";
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
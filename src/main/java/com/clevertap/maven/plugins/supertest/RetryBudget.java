@@ -0,0 +1,136 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Limits the wall time spent on retries, by choosing which failed tests each retry reruns.
+ *
+ * <p>Tests are chosen by the chance that they pass on a retry per millisecond they take to rerun,
+ * i.e. the cheapest and most likely flaky ones first, as long as they fit into what is left of
+ * the budget. Besides the durations of its tests, a retry is assumed to take as much longer as
+ * the previous one did, e.g. for starting Maven.
+ */
+public class RetryBudget {
+    // chance of passing on a retry of tests without history
+    static final double UNKNOWN_PASS_PROBABILITY = 0.5;
+
+    // tests are assumed to take at least this long, so that each one has a cost
+    private static final long MIN_COST_MILLIS = 1;
+
+    private final long budgetMillis;
+    private final long startTime;
+    private long retryOverheadMillis;
+
+    /**
+     * @param startTime when the first retry started
+     */
+    public RetryBudget(long budgetMillis, long startTime) {
+        this.budgetMillis = budgetMillis;
+        this.startTime = startTime;
+    }
+
+    /**
+     * @param costs estimated milliseconds each test takes to rerun
+     * @param passProbability chance of each test passing on a retry
+     * @return the tests to rerun, none if the budget is used up
+     */
+    public Set<String> select(
+            Map<String, Long> costs, ToDoubleFunction<String> passProbability, long now) {
+        long remaining = getRemainingMillis(now) - retryOverheadMillis;
+        final Set<String> selected = new TreeSet<>();
+
+        final List<String> tests = new ArrayList<>(costs.keySet());
+        tests.sort(Comparator
+                .comparingDouble((String test) ->
+                        -passProbability.applyAsDouble(test) / cost(costs, test))
+                .thenComparingLong(test -> cost(costs, test))
+                .thenComparing(Comparator.naturalOrder()));
+
+        // tests which do not fit are skipped, cheaper ones further down may still fit
+        for (String test : tests) {
+            final long cost = cost(costs, test);
+            if (cost <= remaining) {
+                selected.add(test);
+                remaining -= cost;
+            }
+        }
+
+        return selected;
+    }
+
+    /**
+     * Records how long a retry took, to estimate the overhead of the next one.
+     *
+     * @param testMillis estimated cost of the tests the retry reran
+     */
+    public void recordRetry(long wallMillis, long testMillis) {
+        retryOverheadMillis = Math.max(0, wallMillis - testMillis);
+    }
+
+    public long getRemainingMillis(long now) {
+        return budgetMillis - (now - startTime);
+    }
+
+    private static long cost(Map<String, Long> costs, String test) {
+        return Math.max(MIN_COST_MILLIS, costs.get(test));
+    }
+
+    /**
+     * Estimates the cost of rerunning each failed test by its duration in the reports, or the
+     * duration of its class, e.g. for failures outside of a test case. Classes which did not
+     * complete, e.g. since they crashed or hung, have no report, they are estimated by their
+     * duration in earlier builds, or the mean duration of all classes if it's unknown.
+     *
+     * @param failures test cases to rerun, by class
+     * @param incompleteClasses classes to rerun as a whole, since they have no report
+     * @param durations milliseconds each class took in earlier builds
+     * @return milliseconds each test (className#method, or className for a whole class) is
+     *         estimated to take
+     */
+    static Map<String, Long> estimateCosts(
+            List<RunResult> results,
+            Map<String, List<String>> failures,
+            Collection<String> incompleteClasses,
+            Map<String, Long> durations) {
+        final Map<String, RunResult> resultsByClass = new HashMap<>();
+        for (RunResult result : results) {
+            resultsByClass.put(result.getClassName(), result);
+        }
+
+        final Map<String, Long> costs = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : failures.entrySet()) {
+            final RunResult result = resultsByClass.get(entry.getKey());
+
+            for (String testCase : entry.getValue()) {
+                double seconds = 0;
+                if (result != null) {
+                    seconds = result.getTestCaseTime(testCase);
+                    if (seconds < 0) {
+                        seconds = result.getTime();
+                    }
+                }
+
+                costs.put(FlakyTestHistory.testId(entry.getKey(), testCase),
+                        Math.round(seconds * 1000));
+            }
+        }
+
+        final long meanDuration = durations.isEmpty()
+                ? 0
+                : durations.values().stream().mapToLong(Long::longValue).sum()
+                        / durations.size();
+        for (String className : incompleteClasses) {
+            costs.put(className, durations.getOrDefault(className, meanDuration));
+        }
+
+        return costs;
+    }
+}
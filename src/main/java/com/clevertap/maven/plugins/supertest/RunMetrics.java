@@ -0,0 +1,154 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of a single execution, written as an OpenMetrics text file, e.g. for node_exporter's
+ * textfile collector.
+ *
+ * <p>The file is replaced atomically, so a scrape never sees a partially written file.
+ */
+public class RunMetrics {
+    private final String module;
+    // wall time in milliseconds, keyed by attempt, in the order the attempts finished
+    private final Map<String, Long> attemptMillis = new LinkedHashMap<>();
+    private final AtomicLong reportParseMillis = new AtomicLong();
+    private final AtomicLong shutdownMillis = new AtomicLong();
+    private final AtomicInteger noActivityTimeouts = new AtomicInteger();
+    private volatile int testsRerun;
+    private volatile int testsRecovered;
+    private volatile int testsFailedPermanently;
+    private volatile int testsOverRetryBudget;
+
+    /**
+     * @param module identifies the module, e.g. groupId:artifactId
+     */
+    public RunMetrics(String module) {
+        this.module = module;
+    }
+
+    /**
+     * Adds the wall time of an attempt; attempts recorded more than once, e.g. early retries of
+     * several classes, are summed up.
+     */
+    public synchronized void addAttemptTime(String attempt, long millis) {
+        attemptMillis.merge(attempt, millis, Long::sum);
+    }
+
+    public void addReportParseTime(long millis) {
+        reportParseMillis.addAndGet(millis);
+    }
+
+    public void addShutdownTime(long millis) {
+        shutdownMillis.addAndGet(millis);
+    }
+
+    public void incrementNoActivityTimeouts() {
+        noActivityTimeouts.incrementAndGet();
+    }
+
+    /**
+     * @param rerun tests which were retried
+     * @param recovered retried tests which passed eventually
+     * @param failedPermanently tests which still failed after all retries
+     */
+    public void setRetryOutcome(int rerun, int recovered, int failedPermanently) {
+        testsRerun = rerun;
+        testsRecovered = recovered;
+        testsFailedPermanently = failedPermanently;
+    }
+
+    /**
+     * @param overRetryBudget failed tests which were not retried, since the retry time budget
+     *         was used up
+     */
+    public void setTestsOverRetryBudget(int overRetryBudget) {
+        testsOverRetryBudget = overRetryBudget;
+    }
+
+    public void write(File file) throws IOException {
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        final File tmp = new File(file.getPath() + ".tmp");
+        Files.write(tmp.toPath(), toOpenMetrics().getBytes(StandardCharsets.UTF_8));
+
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    synchronized String toOpenMetrics() {
+        final StringBuilder text = new StringBuilder();
+        final String labels = "module=\"" + escape(module) + "\"";
+
+        family(text, "supertest_attempt_duration_seconds", "gauge",
+                "Wall time of an attempt of the last execution.");
+        for (Map.Entry<String, Long> entry : attemptMillis.entrySet()) {
+            sample(text, "supertest_attempt_duration_seconds",
+                    labels + ",attempt=\"" + escape(entry.getKey()) + "\"",
+                    seconds(entry.getValue()));
+        }
+
+        family(text, "supertest_tests_rerun", "gauge",
+                "Tests which were retried in the last execution.");
+        sample(text, "supertest_tests_rerun", labels, String.valueOf(testsRerun));
+
+        family(text, "supertest_tests_recovered", "gauge",
+                "Retried tests which passed eventually in the last execution.");
+        sample(text, "supertest_tests_recovered", labels, String.valueOf(testsRecovered));
+
+        family(text, "supertest_tests_failed_permanently", "gauge",
+                "Tests which still failed after all retries of the last execution.");
+        sample(text, "supertest_tests_failed_permanently", labels,
+                String.valueOf(testsFailedPermanently));
+
+        family(text, "supertest_tests_over_retry_budget", "gauge",
+                "Failed tests which were not retried since the retry time budget was used up "
+                        + "in the last execution.");
+        sample(text, "supertest_tests_over_retry_budget", labels,
+                String.valueOf(testsOverRetryBudget));
+
+        family(text, "supertest_report_parse_seconds", "gauge",
+                "Time spent parsing surefire reports in the last execution.");
+        sample(text, "supertest_report_parse_seconds", labels, seconds(reportParseMillis.get()));
+
+        family(text, "supertest_process_shutdown_seconds", "gauge",
+                "Time spent shutting down timed out Maven processes in the last execution.");
+        sample(text, "supertest_process_shutdown_seconds", labels,
+                seconds(shutdownMillis.get()));
+
+        // a gauge like the others, since the file is replaced by every execution; a counter's
+        // _total sample would not match its family in node_exporter's text format parser
+        family(text, "supertest_no_activity_timeouts", "gauge",
+                "Maven processes which timed out without output in the last execution.");
+        sample(text, "supertest_no_activity_timeouts", labels,
+                String.valueOf(noActivityTimeouts.get()));
+
+        text.append("# EOF\n");
+        return text.toString();
+    }
+
+    private static void family(StringBuilder text, String name, String type, String help) {
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    }
+
+    private static void sample(StringBuilder text, String name, String labels, String value) {
+        text.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static String seconds(long millis) {
+        return String.format(Locale.ROOT, "%.3f", millis / 1000.0);
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
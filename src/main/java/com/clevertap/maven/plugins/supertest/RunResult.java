@@ -1,12 +1,19 @@
 package com.clevertap.maven.plugins.supertest;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class RunResult {
 
     private final String className;
     private final List<String> failedTestCases = new ArrayList<>();
+    private final Map<String, FailureSignature> failureSignatures = new HashMap<>();
+    // in seconds, of failed test cases only
+    private final Map<String, Double> testCaseTimes = new HashMap<>();
+    // in seconds, as reported by surefire
+    private double time;
 
     public RunResult(String className) {
         this.className = className;
@@ -20,7 +27,37 @@ public class RunResult {
         return failedTestCases;
     }
 
+    public void setFailureSignature(String testCase, FailureSignature signature) {
+        failureSignatures.put(testCase, signature);
+    }
+
+    /**
+     * @return how the test case failed, or null if it's unknown
+     */
+    public FailureSignature getFailureSignature(String testCase) {
+        return failureSignatures.get(testCase);
+    }
+
+    public void setTestCaseTime(String testCase, double time) {
+        testCaseTimes.put(testCase, time);
+    }
+
+    /**
+     * @return the time in seconds the failed test case took, or -1 if it's unknown
+     */
+    public double getTestCaseTime(String testCase) {
+        return testCaseTimes.getOrDefault(testCase, -1.0);
+    }
+
     public String getClassName() {
         return className;
     }
+
+    public double getTime() {
+        return time;
+    }
+
+    public void setTime(double time) {
+        this.time = time;
+    }
 }
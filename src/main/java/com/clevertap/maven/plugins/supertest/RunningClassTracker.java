@@ -0,0 +1,42 @@
+package com.clevertap.maven.plugins.supertest;
+
+import com.clevertap.maven.plugins.supertest.SurefireConsoleParser.TestSetSummary;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the test classes of a Maven process which started but did not complete yet, from the
+ * console output of surefire.
+ */
+public class RunningClassTracker {
+    private final Set<String> runningClasses = ConcurrentHashMap.newKeySet();
+
+    public void onOutputLine(String line) {
+        final String started = SurefireConsoleParser.parseRunningClass(line);
+        if (started != null) {
+            runningClasses.add(started);
+            return;
+        }
+
+        final TestSetSummary summary = SurefireConsoleParser.parse(line);
+        if (summary != null) {
+            runningClasses.remove(summary.getClassName());
+        }
+    }
+
+    /**
+     * @return the classes which started but did not complete, sorted by name
+     */
+    public Set<String> getRunningClasses() {
+        return Collections.unmodifiableSet(new TreeSet<>(runningClasses));
+    }
+
+    /**
+     * Forgets the given classes, e.g. once their fork is terminated.
+     */
+    public void remove(Set<String> classes) {
+        runningClasses.removeAll(classes);
+    }
+}
@@ -0,0 +1,75 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Splits a set of test classes into disjoint shards, to be run by concurrent Maven processes.
+ *
+ * <p>Classes with a known duration are bin-packed longest-processing-time first: the longest
+ * class goes to the shard with the least total duration so far. Classes without history are
+ * then dealt round-robin, so that each shard gets the same number of them.
+ */
+public class ShardPlanner {
+    private final Map<String, Long> durations;
+
+    public ShardPlanner() {
+        this(Collections.emptyMap());
+    }
+
+    /**
+     * @param durations historical class durations in milliseconds, keyed by class name
+     */
+    public ShardPlanner(Map<String, Long> durations) {
+        this.durations = durations;
+    }
+
+    /**
+     * @param testClasses test classes to split
+     * @param shards max number of shards
+     * @return non-empty, disjoint lists of test classes; the same input always results in the
+     *         same plan
+     */
+    public List<List<String>> plan(Collection<String> testClasses, int shards) {
+        final int shardCount = Math.max(1, Math.min(shards, testClasses.size()));
+        final List<List<String>> plan = new ArrayList<>(shardCount);
+        final long[] load = new long[shardCount];
+
+        for (int i = 0; i < shardCount; i++) {
+            plan.add(new ArrayList<>());
+        }
+
+        final List<String> timedClasses = new ArrayList<>();
+        final List<String> untimedClasses = new ArrayList<>();
+        for (String testClass : new TreeSet<>(testClasses)) {
+            (durations.containsKey(testClass) ? timedClasses : untimedClasses).add(testClass);
+        }
+
+        timedClasses.sort(Comparator.comparing(durations::get).reversed());
+        for (String testClass : timedClasses) {
+            int lightest = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (load[i] < load[lightest]) {
+                    lightest = i;
+                }
+            }
+
+            plan.get(lightest).add(testClass);
+            load[lightest] += durations.get(testClass);
+        }
+
+        int next = 0;
+        for (String testClass : untimedClasses) {
+            plan.get(next).add(testClass);
+            next = (next + 1) % shardCount;
+        }
+
+        plan.removeIf(List::isEmpty);
+        return plan;
+    }
+}
@@ -1,172 +1,1544 @@
 package com.clevertap.maven.plugins.supertest;
 
 import com.clevertap.maven.plugins.supertest.util.ProcessHelper;
-import java.io.BufferedReader;
+import com.clevertap.maven.plugins.supertest.util.SystemResources;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import javax.xml.parsers.ParserConfigurationException;
+import java.util.stream.Collectors;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.BuildPluginManager;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
-import org.xml.sax.SAXException;
 
-@Mojo(name = "supertest")
+@Mojo(name = "supertest", requiresDependencyResolution = ResolutionScope.TEST)
 public class SuperTestMavenPlugin extends AbstractMojo {
 
     // this is the max time to wait in seconds for process termination after the stdout read is
     // finished or terminated
     private static final int STDOUT_POST_READ_WAIT_TIMEOUT = 10;
+    // batches of output lines waiting to be logged, each from a single read of up to 64 KB
+    private static final int LOG_WRITER_QUEUE_CAPACITY = 256;
     private static final String TEST_REGEX = "-Dtest=(.*?)(\\s|$)";
     private static final Pattern TEST_REGEX_PATTERN = Pattern.compile(TEST_REGEX);
+    static final String BACKEND_SHELL = "shell";
+    static final String BACKEND_IN_PROCESS = "in-process";
+    private static final String EARLY_RETRY_DESCRIPTOR = "supertest early retry ";
+    private static final String ISOLATED_RERUN_DESCRIPTOR = "supertest isolated rerun ";
+    private static final String COMPILE_DESCRIPTOR = "supertest compile";
+    // once the project is compiled, Maven processes skip compiling the main classes and copying
+    // resources, which concurrent processes would overwrite while others read them; the test
+    // classes cannot be skipped alone, the compiler finds them up to date
+    private static final String SKIP_COMPILATION_OPTS =
+            " -Dmaven.main.skip=true -Dmaven.resources.skip=true";
+    // how often an in-process run is checked for new reports, in milliseconds
+    private static final long IN_PROCESS_POLL_INTERVAL = 1000;
 
     private final ProcessHelper processHelper = new ProcessHelper();
+    private final SurefireForkLocator forkLocator = new SurefireForkLocator(processHelper);
 
     private ExecutorService pool;
 
+    private SurefireReportCollector reportCollector;
+
+    private TimingStore timingStore;
+
+    private FlakyTestHistory flakyTestHistory;
+
+    private FailedClassesStore failedClassesStore;
+
+    private TestImpactAnalyzer testImpactAnalyzer;
+
+    private InProcessSurefireRunner inProcessRunner;
+
+    // set while the first run is going, if early retries are enabled
+    private volatile EarlyRetryScheduler earlyRetryScheduler;
+
+    private final Set<String> earlyRetriedTests = ConcurrentHashMap.newKeySet();
+
+    // classes whose fork was terminated since they hung, to be rerun on their own
+    private final Set<String> hungClasses = ConcurrentHashMap.newKeySet();
+    // whether the project is compiled already, so that later Maven processes skip compiling it
+    private volatile boolean compiled;
+
+    // progress of the attempt currently running
+    private volatile ProgressTracker progress;
+
+    private ScheduledExecutorService progressReporter;
+
+    private ScheduledFuture<?> progressReport;
+
+    // writes output of the Maven processes to the Maven log, so that pumping it never waits
+    private ExecutorService logWriter;
+
+    private OutputPump.Verbosity verbosity = OutputPump.Verbosity.ALL;
+
+    // admits Maven processes while there is headroom, null if every process starts right away
+    private ResourceGovernor resourceGovernor;
+
+    private ExecutionTimeline timeline;
+
+    private RunMetrics metrics;
+
+    @Component
+    BuildPluginManager pluginManager;
+
     @Parameter(defaultValue = "${project}", readonly = true)
     MavenProject project;
 
+    @Parameter(defaultValue = "${session}", readonly = true)
+    MavenSession session;
+
+
+    @Parameter(property = "mavenCommand", defaultValue = "mvn", readonly = true)
+    String mavenCommand = "mvn";
+
+    @Parameter(property = "mvnTestOpts", readonly = true)
+    String mvnTestOpts;
+
+    @Parameter(property = "rerunProfile", readonly = true)
+    String rerunProfile;
+
+    @Parameter(property = "retryRunCount", readonly = true, defaultValue = "1")
+    Integer retryRunCount;
+
+    // seconds all retries may take together; each retry reruns the failed tests most likely to
+    // pass per second first, those which do not fit are not retried and fail the build;
+    // 0 disables it
+    @Parameter(property = "retryTimeBudget", readonly = true, defaultValue = "0")
+    Integer retryTimeBudget;
+
+    // in seconds
+    @Parameter(property = "shellNoActivityTimeout", readonly = true, defaultValue = "300")
+    Integer shellNoActivityTimeout;
+
+    @Parameter(property = "gracefulShutdownTimeout", readonly = true, defaultValue = "60")
+    Integer gracefulShutdownTimeout;
+
+    @Parameter(property = "includes" )
+    List<String> includes;
+
+    @Parameter(property = "excludes" )
+    List<String> excludes;
+
+    // number of concurrent Maven processes the first run is split into
+    @Parameter(property = "shards", readonly = true, defaultValue = "1")
+    Integer shards;
+
+    // directory where supertest keeps history across builds, e.g. test durations; outside of
+    // the build directory, so that mvn clean keeps it
+    @Parameter(property = "historyDirectory", readonly = true,
+            defaultValue = "${project.basedir}/.supertest")
+    File historyDirectory;
+
+    // pass-on-retry rate above which a test is considered flaky
+    @Parameter(property = "flakyThreshold", readonly = true, defaultValue = "0.5")
+    Double flakyThreshold;
+
+    // number of builds a test must have failed in, before it's classified as flaky or not
+    @Parameter(property = "flakyMinSamples", readonly = true, defaultValue = "3")
+    Integer flakyMinSamples;
+
+    // known flaky tests which still fail after all retries do not fail the build
+    @Parameter(property = "quarantineFlakyTests", readonly = true, defaultValue = "false")
+    boolean quarantineFlakyTests;
+
+    // tests which never passed on a retry in the past are not retried, until they were withheld
+    // in flakyMinSamples builds in a row
+    @Parameter(property = "skipDeterministicFailureRetries", readonly = true,
+            defaultValue = "false")
+    boolean skipDeterministicFailureRetries;
+
+    // tests which fail the same way on a retry as before, i.e. with the same exception, message
+    // and top stack frames, are not retried again
+    @Parameter(property = "skipReproducedFailureRetries", readonly = true,
+            defaultValue = "false")
+    boolean skipReproducedFailureRetries;
+
+    // share of the first run's failed tests with the same cause, above which nothing is retried
+    // since retries are bound to fail the same way, e.g. when a shared database did not start;
+    // 0 disables it
+    @Parameter(property = "dominantFailureThreshold", readonly = true, defaultValue = "0")
+    Double dominantFailureThreshold;
+
+    // number of failed tests in the first run below which retries are never skipped
+    @Parameter(property = "dominantFailureMinTests", readonly = true, defaultValue = "10")
+    Integer dominantFailureMinTests;
+
+    // runs the classes which failed in the previous build first, as a separate batch
+    @Parameter(property = "failuresFirst", readonly = true, defaultValue = "false")
+    boolean failuresFirst;
+
+    // number of threads used for parsing surefire reports, defaults to the available cores
+    @Parameter(property = "reportParserThreads", readonly = true)
+    Integer reportParserThreads;
+
+    // number of threads listing the test classes directory when looking for test classes; more
+    // than 1 helps on file systems with a high latency, e.g. network or overlay file systems
+    @Parameter(property = "testDiscoveryThreads", readonly = true, defaultValue = "1")
+    Integer testDiscoveryThreads;
+
+    // runs only the test classes depending on classes changed since the last green build
+    @Parameter(property = "testImpactAnalysis", readonly = true, defaultValue = "false")
+    boolean testImpactAnalysis;
+
+    // how retries are run: "shell" spawns a new Maven process per retry, "in-process" runs
+    // surefire inside this Maven, reusing its session
+    @Parameter(property = "executionBackend", readonly = true, defaultValue = BACKEND_SHELL)
+    String executionBackend;
+
+    // number of concurrent Maven processes a retry is split into, e.g. to run classes which are
+    // rerun in isolated forks side by side
+    @Parameter(property = "rerunParallelism", readonly = true, defaultValue = "1")
+    Integer rerunParallelism;
+
+    // max length of the test list passed to a single retry process; longer lists are split into
+    // batches, which run one after the other, since command lines are limited by the OS
+    @Parameter(property = "rerunBatchMaxLength", readonly = true, defaultValue = "100000")
+    Integer rerunBatchMaxLength;
+
+    // passes the tests to retry in a file through surefire's includesFile, instead of -Dtest
+    @Parameter(property = "rerunTestsInFile", readonly = true, defaultValue = "false")
+    boolean rerunTestsInFile;
+
+    // retries classes which failed in the first run as soon as their failure shows up in the
+    // output, using up to rerunParallelism processes next to the first run
+    @Parameter(property = "earlyRetries", readonly = true, defaultValue = "false")
+    boolean earlyRetries;
+
+    // seconds between progress status lines of a running attempt, 0 disables them
+    @Parameter(property = "progressInterval", readonly = true, defaultValue = "30")
+    Integer progressInterval;
+
+    // which lines of the Maven processes' output are logged: all, failures or summary
+    @Parameter(property = "outputVerbosity", readonly = true, defaultValue = "all")
+    String outputVerbosity;
+
+    // directory the whole output of each Maven process is written to, in a file per process
+    @Parameter(property = "outputLogDirectory", readonly = true)
+    File outputLogDirectory;
+
+    // JSON Lines file which gets an event appended for every attempt, defaults to
+    // timeline.jsonl in the history directory
+    @Parameter(property = "timelineFile", readonly = true)
+    File timelineFile;
+
+    // OpenMetrics text file the metrics of the execution are written to at its end, e.g. in the
+    // directory of node_exporter's textfile collector
+    @Parameter(property = "metricsFile", readonly = true)
+    File metricsFile;
+
+    // when a Maven process has no output for shellNoActivityTimeout, terminates only the surefire
+    // forks running classes which did not complete, lets the remaining classes finish, and
+    // reruns the hung classes on their own afterwards
+    @Parameter(property = "hangIsolation", readonly = true, defaultValue = "false")
+    boolean hangIsolation;
+
+    // no output timeout in seconds of the isolated rerun of a hung class
+    @Parameter(property = "hungClassTimeout", readonly = true, defaultValue = "300")
+    Integer hungClassTimeout;
+
+    // starts Maven processes only while the machine has headroom for them, sized from the cgroup
+    // limits, the load average and the free memory; shards and rerunParallelism are upper bounds
+    @Parameter(property = "resourceAware", readonly = true, defaultValue = "false")
+    boolean resourceAware;
+
+    // memory in MB a single Maven process, including its forks, is assumed to need
+    @Parameter(property = "memoryPerRun", readonly = true, defaultValue = "1024")
+    Integer memoryPerRun;
+
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (mvnTestOpts == null) {
+            mvnTestOpts = "";
+        }
+
+        mvnTestOpts = mvnTestOpts.trim();
+        if (mvnTestOpts.startsWith("\"")) {
+            mvnTestOpts = mvnTestOpts.substring(1);
+        }
+
+        if (mvnTestOpts.endsWith("\"")) {
+            mvnTestOpts = mvnTestOpts.substring(0, mvnTestOpts.length() - 1);
+        }
+
+        final File baseDir = project.getBasedir();
+        final String artifactId = project.getArtifactId();
+        final String groupId = project.getGroupId();
+        inProcessRunner = createInProcessRunner();
+        timeline = new ExecutionTimeline(
+                timelineFile != null ? timelineFile : new File(historyDirectory, "timeline.jsonl"),
+                groupId + ":" + artifactId, System.currentTimeMillis());
+        metrics = new RunMetrics(groupId + ":" + artifactId);
+
+        if (outputVerbosity != null) {
+            try {
+                verbosity = OutputPump.Verbosity.of(outputVerbosity);
+            } catch (IllegalArgumentException e) {
+                throw new MojoExecutionException("Unknown outputVerbosity " + outputVerbosity
+                        + ", expected all, failures or summary");
+            }
+        }
+
+        if (resourceAware) {
+            resourceGovernor = new ResourceGovernor(new SystemResources(),
+                    (memoryPerRun != null && memoryPerRun > 0 ? memoryPerRun : 1024)
+                            * 1024L * 1024L,
+                    TimeUnit.SECONDS.toMillis(1), getLog());
+        }
+
+        // every concurrently running Maven process needs a thread reading its output
+        logWriter = createLogWriter(LOG_WRITER_QUEUE_CAPACITY);
+        pool = Executors.newFixedThreadPool(earlyRetries
+                ? getShards() + getRerunParallelism()
+                : Math.max(getShards(), getRerunParallelism()));
+        reportCollector = new SurefireReportCollector(getReportParserThreads());
+        String testClassesDir = project.getBuild().getTestOutputDirectory();
+
+        // the resolved classes are cached next to the test classes, until they are recompiled
+        Set<String> allTestClasses = new HashSet<>(
+                new TestListResolver(includes, excludes, getTest(), testClassesDir,
+                        new File(new File(testClassesDir).getAbsoluteFile().getParentFile(),
+                                "supertest-test-classes.txt"),
+                        getTestDiscoveryThreads())
+                        .scanDirectories());
+
+        getLog().info("Test classes dir: " + testClassesDir);
+        getLog().debug("Test classes found: " + String.join(",", allTestClasses));
+
+        final int resolvedTestClassCount = allTestClasses.size();
+        if (testImpactAnalysis) {
+            allTestClasses = selectAffectedTestClasses(allTestClasses);
+
+            if (allTestClasses.isEmpty()) {
+                getLog().info("No test classes are affected by changes since the last green build");
+                writeMetrics();
+                pool.shutdown();
+                logWriter.shutdown();
+                reportCollector.shutdown();
+                return;
+            }
+        }
+
+        timingStore = new TimingStore(new File(historyDirectory, "timings.properties"));
+        try {
+            timingStore.load();
+        } catch (IOException e) {
+            getLog().warn("Failed to load test durations, shards will be split by class count", e);
+        }
+
+        flakyTestHistory = new FlakyTestHistory(
+                new File(historyDirectory, "flaky-history.tsv"),
+                flakyThreshold != null ? flakyThreshold : 0.5,
+                flakyMinSamples != null ? flakyMinSamples : 3);
+        try {
+            flakyTestHistory.load();
+        } catch (IOException e) {
+            getLog().warn("Failed to load the flaky test history", e);
+        }
+
+        failedClassesStore =
+                new FailedClassesStore(new File(historyDirectory, "failed-classes.txt"));
+
+        int exitCode;
+        try {
+            exitCode = runWithRetries(allTestClasses,
+                    allTestClasses.size() < resolvedTestClassCount, baseDir, artifactId, groupId);
+        } finally {
+            reportCollector.shutdown();
+            pool.shutdown();
+            logWriter.shutdown();
+            if (progressReporter != null) {
+                progressReporter.shutdownNow();
+            }
+        }
+
+        writeMetrics();
+
+        if (exitCode != 0) {
+            System.exit(1);
+        }
+
+        // a green build is the baseline which the next build's changes are compared against
+        if (testImpactAnalyzer != null) {
+            try {
+                testImpactAnalyzer.saveFingerprints();
+            } catch (IOException e) {
+                getLog().warn("Failed to save class fingerprints", e);
+            }
+        }
+    }
+
+    private InProcessSurefireRunner createInProcessRunner() throws MojoExecutionException {
+        if (executionBackend == null || BACKEND_SHELL.equals(executionBackend)) {
+            return null;
+        }
+
+        if (!BACKEND_IN_PROCESS.equals(executionBackend)) {
+            throw new MojoExecutionException("Unknown executionBackend " + executionBackend
+                    + ", expected " + BACKEND_SHELL + " or " + BACKEND_IN_PROCESS);
+        }
+
+        if (getRerunParallelism() > 1) {
+            getLog().warn("In-process retries cannot run concurrently, retries will run in new "
+                    + "Maven processes to honour rerunParallelism " + rerunParallelism);
+            return null;
+        }
+
+        if (rerunProfile != null) {
+            getLog().warn("Profiles cannot be activated in-process, retries will run in a new "
+                    + "Maven process to activate rerunProfile " + rerunProfile);
+            return null;
+        }
+
+        final InProcessSurefireRunner runner =
+                new InProcessSurefireRunner(pluginManager, session, project, getLog());
+        if (!runner.isAvailable()) {
+            getLog().warn("Surefire is not configured for the project, retries will run in a "
+                    + "new Maven process");
+            return null;
+        }
+
+        if (!mvnTestOpts.replaceAll(TEST_REGEX, "").trim().isEmpty()) {
+            getLog().warn("mvnTestOpts are not applied to in-process retries: " + mvnTestOpts);
+        }
+
+        return runner;
+    }
+
+    private Set<String> selectAffectedTestClasses(Set<String> allTestClasses) {
+        final Set<String> affectedTestClasses;
+        try {
+            final File outputDirectory = new File(project.getBuild().getOutputDirectory());
+            final File testOutputDirectory =
+                    new File(project.getBuild().getTestOutputDirectory());
+            testImpactAnalyzer = new TestImpactAnalyzer(outputDirectory, testOutputDirectory,
+                    getImpactAnalysisInputs(outputDirectory, testOutputDirectory),
+                    new File(historyDirectory, "class-fingerprints.properties"));
+            affectedTestClasses = testImpactAnalyzer.selectAffected(allTestClasses);
+        } catch (IOException | DependencyResolutionRequiredException e) {
+            getLog().warn("Failed to analyze test impact, running all test classes", e);
+            testImpactAnalyzer = null;
+            return allTestClasses;
+        }
+
+        getLog().info("Test classes affected by changes: " + affectedTestClasses.size() + "/"
+                + allTestClasses.size());
+        getLog().debug("Affected test classes: " + String.join(",", affectedTestClasses));
+
+        return new HashSet<>(affectedTestClasses);
+    }
+
+    /**
+     * @return the poms of the project and its parents, and the test classpath apart from the
+     *         output directories, i.e. the dependency jars and the output of upstream modules
+     */
+    private List<File> getImpactAnalysisInputs(File outputDirectory, File testOutputDirectory)
+            throws DependencyResolutionRequiredException {
+        final List<File> inputs = new ArrayList<>();
+        for (MavenProject current = project; current != null; current = current.getParent()) {
+            if (current.getFile() != null) {
+                inputs.add(current.getFile());
+            }
+        }
+
+        for (String element : project.getTestClasspathElements()) {
+            final File file = new File(element);
+            if (!file.equals(outputDirectory) && !file.equals(testOutputDirectory)) {
+                inputs.add(file);
+            }
+        }
+
+        return inputs;
+    }
+
+    /**
+     * @param subset whether the test classes are only a subset of the resolved ones
+     */
+    private int runWithRetries(
+            Set<String> allTestClasses,
+            boolean subset,
+            File baseDir,
+            String artifactId,
+            String groupId)
+            throws MojoExecutionException {
+        startAttempt();
+        final long firstRunStartTime = System.currentTimeMillis();
+        if (getShards() > 1 || (earlyRetries && retryRunCount != null && retryRunCount > 0)) {
+            compileOnce(artifactId, groupId);
+        }
+        final ExecutorService earlyRetrySlots = startEarlyRetries(baseDir, artifactId, groupId);
+        startProgress("supertest run#1", allTestClasses, timingStore.getDurations());
+        int exitCode;
+        Map<String, RunResult> earlyRetriedResults = Collections.emptyMap();
+        try {
+            exitCode = runFirstRun(allTestClasses, subset, artifactId, groupId);
+
+            if (earlyRetryScheduler != null) {
+                earlyRetriedResults = earlyRetryScheduler.awaitRetries();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for early retries", e);
+        } finally {
+            earlyRetryScheduler = null;
+            if (earlyRetrySlots != null) {
+                earlyRetrySlots.shutdownNow();
+            }
+            finishProgress();
+        }
+        final long firstRunEndTime = System.currentTimeMillis();
+        logAttemptTime("supertest run#1", BACKEND_SHELL, firstRunStartTime);
+
+        // only the first run executes whole classes, the durations of retries are partial; the
+        // reports of early retried classes were overwritten, their first run results were kept
+        final List<RunResult> firstRunResults = new ArrayList<>();
+        final long parseStartTime = System.currentTimeMillis();
+        List<RunResult> collectedResults = Collections.emptyList();
+        boolean reportsParsed = true;
+        try {
+            collectedResults = collectReports(baseDir);
+            for (RunResult result : collectedResults) {
+                firstRunResults.add(
+                        earlyRetriedResults.getOrDefault(result.getClassName(), result));
+            }
+        } catch (MojoExecutionException e) {
+            // a green run only reads its reports for the history, which must not fail the build
+            if (exitCode != 0) {
+                throw e;
+            }
+
+            getLog().warn("Failed to parse the reports of the first run, test durations are not "
+                    + "recorded", e);
+            reportsParsed = false;
+        }
+        recordAttempt("supertest run#1", BACKEND_SHELL, firstRunStartTime, firstRunEndTime,
+                exitCode, new TreeSet<>(allTestClasses), firstRunResults,
+                System.currentTimeMillis() - parseStartTime);
+        if (reportsParsed) {
+            recordTimings(firstRunResults);
+        }
+        // tests ran, so they compiled
+        compiled |= !collectedResults.isEmpty();
+        recordFailedClasses(firstRunResults);
+        boolean hangsIsolated = rerunHungClasses(artifactId, groupId);
+
+        if (exitCode == 0) {
+            return exitCode;
+        }
+
+        // Strip -Dtest=... from the Maven opts if specified, since these were valid for the very first run only.
+        mvnTestOpts = mvnTestOpts.replaceAll(TEST_REGEX, "");
+
+        final Set<String> firstRunFailures = getFailedTests(toFailureMap(firstRunResults));
+        final Set<String> retriedTests = new HashSet<>(earlyRetriedTests);
+        final Set<String> withheldTests = new TreeSet<>();
+        final Set<String> reproducedTests = new TreeSet<>();
+        final FailureSignatureTracker signatures = new FailureSignatureTracker();
+        signatures.update(firstRunResults, Collections.emptySet());
+        // early retries ran next to the first run, their reports have been replaced already
+        Set<String> lastRetriedTests = new HashSet<>(earlyRetriedTests);
+
+        final Set<String> overBudgetTests = new TreeSet<>();
+        final RetryBudget retryBudget = retryTimeBudget != null && retryTimeBudget > 0
+                ? new RetryBudget(TimeUnit.SECONDS.toMillis(retryTimeBudget),
+                        System.currentTimeMillis())
+                : null;
+
+        // the reports are collected once after each run, null if they changed since, e.g. by a
+        // rerun of hung classes
+        List<RunResult> latestResults = hangsIsolated ? null : collectedResults;
+
+        final int retries = getRetryRunCount(firstRunResults);
+        for (int retryRunNumber = 1; retryRunNumber <= retries; retryRunNumber++) {
+            final List<RunResult> results =
+                    latestResults != null ? latestResults : collectReports(baseDir);
+            final Map<String, List<String>> classnameToTestcaseList = toFailureMap(results);
+
+            if (skipDeterministicFailureRetries) {
+                withheldTests.addAll(withhold(classnameToTestcaseList,
+                        flakyTestHistory::isKnownDeterministic));
+            }
+
+            if (skipReproducedFailureRetries) {
+                final Set<String> reproduced = signatures.update(results, lastRetriedTests);
+                reproducedTests.addAll(withhold(classnameToTestcaseList, reproduced::contains));
+            }
+
+            // classes without a report, e.g. since they crashed or hung, are rerun as a whole
+            Set<String> rerunClasses = allTestClasses;
+            long retryTestMillis = 0;
+            if (retryBudget != null) {
+                final Set<String> incompleteClasses = new TreeSet<>(allTestClasses);
+                incompleteClasses.removeAll(classnameToTestcaseList.keySet());
+                final Map<String, Long> costs = RetryBudget.estimateCosts(results,
+                        classnameToTestcaseList, incompleteClasses, timingStore.getDurations());
+                final long now = System.currentTimeMillis();
+                final Set<String> selected =
+                        retryBudget.select(costs, this::getPassOnRetryProbability, now);
+
+                getLog().info("Retry time budget: "
+                        + TimeUnit.MILLISECONDS.toSeconds(
+                                Math.max(0, retryBudget.getRemainingMillis(now)))
+                        + " sec left, retrying " + selected.size() + "/" + costs.size()
+                        + " failed tests");
+                overBudgetTests.removeAll(selected);
+                overBudgetTests.addAll(
+                        withhold(classnameToTestcaseList, test -> !selected.contains(test)));
+
+                incompleteClasses.removeAll(selected);
+                overBudgetTests.addAll(incompleteClasses);
+                rerunClasses = new HashSet<>(allTestClasses);
+                rerunClasses.removeAll(incompleteClasses);
+                for (String test : selected) {
+                    retryTestMillis += costs.get(test);
+                }
+            }
+
+            final String rerunTests = createRerunTests(rerunClasses, classnameToTestcaseList);
+
+            // previous run exited with code > 0, but all tests were actually run successfully
+            if (rerunTests == null) {
+                exitCode = 0;
+                break;
+            }
+
+            lastRetriedTests = getFailedTests(classnameToTestcaseList);
+            retriedTests.addAll(lastRetriedTests);
+
+            final List<String> rerunTestGroups = getRerunParallelism() > 1
+                    ? createRerunTestGroups(rerunClasses, classnameToTestcaseList,
+                            timingStore.getDurations())
+                    : Collections.singletonList(rerunTests);
+
+            final Set<String> incompleteRerunClasses = new TreeSet<>(rerunClasses);
+            incompleteRerunClasses.removeAll(classnameToTestcaseList.keySet());
+            final Map<String, Long> retryDurations = estimateRetryDurations(results,
+                    classnameToTestcaseList, incompleteRerunClasses, timingStore.getDurations());
+
+            final String descriptor = "supertest retry run#" + retryRunNumber;
+            final long retryStartTime = System.currentTimeMillis();
+            startAttempt();
+            exitCode = runRetry(descriptor, rerunTestGroups, retryDurations, artifactId, groupId);
+            latestResults = recordRetryAttempt(
+                    descriptor, rerunTestGroups, retryStartTime, exitCode, baseDir);
+            if (rerunHungClasses(artifactId, groupId)) {
+                hangsIsolated = true;
+                latestResults = null;
+            }
+
+            if (retryBudget != null) {
+                retryBudget.recordRetry(
+                        System.currentTimeMillis() - retryStartTime, retryTestMillis);
+            }
+
+            if (exitCode == 0) {
+                break;
+            }
+        }
+
+        final Map<String, List<String>> finalFailures = toFailureMap(
+                latestResults != null ? latestResults : collectReports(baseDir));
+
+        if (exitCode != 0 && hangsIsolated
+                && createRerunTests(allTestClasses, finalFailures) == null) {
+            // the attempt failed since forks were terminated, but every class passed eventually
+            exitCode = 0;
+        }
+
+        // tests left out of a retry may have passed on a later one
+        overBudgetTests.removeIf(test -> !isStillFailing(test, finalFailures));
+
+        if (!withheldTests.isEmpty() || !reproducedTests.isEmpty()
+                || !overBudgetTests.isEmpty()) {
+            if (!withheldTests.isEmpty()) {
+                getLog().error("Not retried, since these tests never passed on a retry before: "
+                        + String.join(",", withheldTests));
+            }
+
+            if (!reproducedTests.isEmpty()) {
+                getLog().error("Not retried again, since these tests failed the same way on a "
+                        + "retry:");
+                for (String test : reproducedTests) {
+                    getLog().error("  " + test + ": " + signatures.getSignature(test));
+                }
+            }
+
+            if (!overBudgetTests.isEmpty()) {
+                getLog().error("Not retried, since the retry time budget of " + retryTimeBudget
+                        + " sec was used up: " + String.join(",", overBudgetTests));
+            }
+            exitCode = 1;
+        } else if (exitCode != 0 && quarantineFlakyTests
+                && isQuarantined(allTestClasses, finalFailures)) {
+            exitCode = 0;
+        }
+
+        recordFlakyTestHistory(firstRunFailures, retriedTests, withheldTests, finalFailures);
+        metrics.setRetryOutcome(retriedTests.size(),
+                (int) retriedTests.stream()
+                        .filter(test -> !isStillFailing(test, finalFailures))
+                        .count(),
+                getFailedTests(finalFailures).size());
+        metrics.setTestsOverRetryBudget(overBudgetTests.size());
+        return exitCode;
+    }
+
+    /**
+     * @return the number of retries, none if most of the first run's failed tests failed with
+     *         the same cause
+     */
+    private int getRetryRunCount(List<RunResult> firstRunResults) {
+        if (dominantFailureThreshold == null || dominantFailureThreshold <= 0) {
+            return retryRunCount;
+        }
+
+        final String cause = FailureSignatureTracker.findDominantCause(firstRunResults,
+                dominantFailureThreshold,
+                dominantFailureMinTests != null ? dominantFailureMinTests : 10);
+        if (cause == null) {
+            return retryRunCount;
+        }
+
+        getLog().error("Not retrying, since most failed tests failed with the same cause, which "
+                + "retries would reproduce: " + cause);
+        return 0;
+    }
+
+    /**
+     * @return the chance of the test passing on a retry, as in its history
+     */
+    private double getPassOnRetryProbability(String test) {
+        return flakyTestHistory.hasOutcomes(test)
+                ? flakyTestHistory.getPassOnRetryRate(test)
+                : RetryBudget.UNKNOWN_PASS_PROBABILITY;
+    }
+
+    private List<RunResult> collectReports(File baseDir) throws MojoExecutionException {
+        final long startTime = System.currentTimeMillis();
+        try {
+            return reportCollector.collect(getXmlFileList(baseDir));
+        } finally {
+            metrics.addReportParseTime(System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private void writeMetrics() {
+        if (metricsFile == null) {
+            return;
+        }
+
+        try {
+            metrics.write(metricsFile);
+        } catch (IOException e) {
+            getLog().warn("Failed to write the metrics to " + metricsFile, e);
+        }
+    }
+
+    /**
+     * @return the slots early retries run on, or null if early retries are disabled
+     */
+    private ExecutorService startEarlyRetries(File baseDir, String artifactId, String groupId) {
+        if (!earlyRetries || retryRunCount == null || retryRunCount < 1) {
+            return null;
+        }
+
+        final ExecutorService slots = Executors.newFixedThreadPool(getRerunParallelism());
+        earlyRetryScheduler = new EarlyRetryScheduler(slots,
+                new File(baseDir, "target/surefire-reports"),
+                (className, failedTestCases) ->
+                        retryEarly(className, failedTestCases, artifactId, groupId),
+                getLog());
+
+        return slots;
+    }
+
+    private void retryEarly(
+            String className, List<String> failedTestCases, String artifactId, String groupId)
+            throws IOException, InterruptedException {
+        final List<String> retriedTestCases = new ArrayList<>();
+        for (String testCase : failedTestCases) {
+            if (!skipDeterministicFailureRetries || !flakyTestHistory.isKnownDeterministic(
+                    FlakyTestHistory.testId(className, testCase))) {
+                retriedTestCases.add(testCase);
+            }
+        }
+
+        if (retriedTestCases.isEmpty()) {
+            return;
+        }
+
+        final StringBuilder tests = new StringBuilder();
+        appendFailedTestCases(className, retriedTestCases, tests);
+        earlyRetriedTests.addAll(
+                getFailedTests(Collections.singletonMap(className, retriedTestCases)));
+
+        final String descriptor = EARLY_RETRY_DESCRIPTOR + className;
+        final long startTime = System.currentTimeMillis();
+        final int exitCode = runShellCommand(createRetryShellCommand(descriptor,
+                tests.substring(0, tests.length() - 1), artifactId, groupId), descriptor);
+        final long endTime = System.currentTimeMillis();
+
+        recordAttempt(descriptor, BACKEND_SHELL, startTime, endTime, exitCode,
+                Collections.singletonList(tests.substring(0, tests.length() - 1)),
+                parseReport(className), System.currentTimeMillis() - endTime);
+    }
+
+    /**
+     * Reruns every class whose fork was terminated since it hung, each on its own and with its
+     * own no output timeout.
+     *
+     * @return true if any class was rerun
+     */
+    private boolean rerunHungClasses(String artifactId, String groupId)
+            throws MojoExecutionException {
+        final Set<String> classNames = new TreeSet<>(hungClasses);
+        hungClasses.removeAll(classNames);
+
+        for (String className : classNames) {
+            final String descriptor = ISOLATED_RERUN_DESCRIPTOR + className;
+            final long startTime = System.currentTimeMillis();
+            final int exitCode;
+            try {
+                exitCode = runShellCommand(
+                        createRetryShellCommand(descriptor, className, artifactId, groupId),
+                        descriptor,
+                        hungClassTimeout != null && hungClassTimeout > 0
+                                ? hungClassTimeout
+                                : shellNoActivityTimeout);
+            } catch (IOException | InterruptedException e) {
+                throw new MojoExecutionException("Failed to rerun hung class " + className, e);
+            }
+
+            final long endTime = System.currentTimeMillis();
+            recordAttempt(descriptor, BACKEND_SHELL, startTime, endTime, exitCode,
+                    Collections.singletonList(className), parseReport(className),
+                    System.currentTimeMillis() - endTime);
+        }
+
+        return !classNames.isEmpty();
+    }
+
+    /**
+     * @return the result of the class's report, or none if it cannot be read
+     */
+    private List<RunResult> parseReport(String className) {
+        final long startTime = System.currentTimeMillis();
+        final File report = new File(project.getBasedir(),
+                "target/surefire-reports/TEST-" + className + ".xml");
+        try {
+            return Collections.singletonList(new SurefireReportParser(report).parse());
+        } catch (Exception e) {
+            getLog().warn("Failed to read the report of " + className, e);
+            return Collections.emptyList();
+        } finally {
+            metrics.addReportParseTime(System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * @return the results of all reports, including the ones of the retry
+     */
+    private List<RunResult> recordRetryAttempt(
+            String descriptor, List<String> testGroups, long startTime, int exitCode,
+            File baseDir) throws MojoExecutionException {
+        final long endTime = System.currentTimeMillis();
+        final Set<String> classNames = getClassNames(testGroups);
+        final List<RunResult> allResults = collectReports(baseDir);
+        final List<RunResult> results = new ArrayList<>();
+        for (RunResult result : allResults) {
+            if (classNames.contains(result.getClassName())) {
+                results.add(result);
+            }
+        }
+
+        final List<String> selectedTests = new ArrayList<>();
+        for (String tests : testGroups) {
+            for (String classTests : tests.split(",")) {
+                if (!classTests.isEmpty()) {
+                    selectedTests.add(classTests);
+                }
+            }
+        }
+
+        recordAttempt(descriptor, inProcessRunner != null ? BACKEND_IN_PROCESS : BACKEND_SHELL,
+                startTime, endTime, exitCode, selectedTests, results,
+                System.currentTimeMillis() - endTime);
+        return allResults;
+    }
+
+    private void recordAttempt(
+            String descriptor,
+            String backend,
+            long startTime,
+            long endTime,
+            int exitCode,
+            Collection<String> selectedTests,
+            List<RunResult> results,
+            long reportParseMillis) {
+        // attempts of single classes are summed up, rather than one series per class
+        String attempt = descriptor;
+        if (descriptor.startsWith(EARLY_RETRY_DESCRIPTOR)) {
+            attempt = EARLY_RETRY_DESCRIPTOR.trim();
+        } else if (descriptor.startsWith(ISOLATED_RERUN_DESCRIPTOR)) {
+            attempt = ISOLATED_RERUN_DESCRIPTOR.trim();
+        }
+        metrics.addAttemptTime(attempt, endTime - startTime);
+
+        try {
+            timeline.appendAttempt(descriptor, backend, startTime, endTime, exitCode,
+                    selectedTests, results, reportParseMillis);
+        } catch (IOException e) {
+            getLog().warn("Failed to append " + descriptor + " to the timeline", e);
+        }
+    }
+
+    /**
+     * Runs the given tests with the configured backend.
+     *
+     * @param testGroups tests to run, in the format of surefire's test parameter; each group
+     *         runs in its own Maven process, concurrently with the others
+     * @param durations estimated milliseconds each class takes to rerun, for its progress
+     * @return 0 if all tests passed
+     */
+    private int runRetry(
+            String descriptor,
+            List<String> testGroups,
+            Map<String, Long> durations,
+            String artifactId,
+            String groupId)
+            throws MojoExecutionException {
+        final long startTime = System.currentTimeMillis();
+
+        if (inProcessRunner != null) {
+            final String tests = String.join(",", testGroups);
+            getLog().info("Running " + descriptor + " in-process with -Dtest=" + tests);
+            final int exitCode = runInProcess(descriptor, tests, startTime);
+            logAttemptTime(descriptor, BACKEND_IN_PROCESS, startTime);
+            return exitCode;
+        }
+
+        startProgress(descriptor, getClassNames(testGroups), durations);
+        try {
+            return runRetryInShell(descriptor, testGroups, artifactId, groupId, startTime);
+        } finally {
+            finishProgress();
+        }
+    }
+
+    /**
+     * Runs the tests in-process, on a thread of its own and under a watchdog. Surefire's output
+     * cannot be watched in-process, so a run is stalled when no report was written for
+     * shellNoActivityTimeout seconds; the surefire forks of this Maven are terminated then,
+     * which fails the run. A run which does not stop, e.g. since its tests run within this Maven
+     * with forkCount=0, is left behind, and later retries run in new Maven processes.
+     */
+    private int runInProcess(String descriptor, String tests, long startTime) {
+        final InProcessSurefireRunner runner = inProcessRunner;
+        final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "supertest-in-process");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final Future<Integer> run = executor.submit(() -> runner.run(tests));
+        executor.shutdown();
+
+        int exitCode = 1;
+        String termination = ExecutionTimeline.TERMINATION_IN_PROCESS;
+        long lastReportTime = getLastReportTime();
+        long lastActivityTime = startTime;
+        try {
+            while (true) {
+                try {
+                    exitCode = run.get(IN_PROCESS_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    final long reportTime = getLastReportTime();
+                    if (reportTime != lastReportTime) {
+                        lastReportTime = reportTime;
+                        lastActivityTime = System.currentTimeMillis();
+                    } else if (!hasRecentShellActivity(lastActivityTime, shellNoActivityTimeout)) {
+                        metrics.incrementNoActivityTimeouts();
+                        termination = terminateInProcessRun(descriptor, run);
+                        exitCode = 1;
+                        break;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.cancel(true);
+        } catch (ExecutionException e) {
+            getLog().error(descriptor + " failed unexpectedly", e);
+        }
+
+        timeline.recordProcess(descriptor, "surefire:test -Dtest=" + tests, startTime,
+                System.currentTimeMillis(), exitCode, termination);
+        return exitCode;
+    }
+
+    /**
+     * Terminates the surefire forks of this Maven, and waits for the stalled run to fail.
+     *
+     * @return how the run was terminated
+     */
+    private String terminateInProcessRun(String descriptor, Future<Integer> run)
+            throws InterruptedException {
+        final Set<Long> pids = new TreeSet<>();
+        try {
+            for (long fork : forkLocator.findForks(processHelper.getCurrentPid()).keySet()) {
+                pids.add(fork);
+                pids.addAll(processHelper.getDescendants(fork));
+            }
+
+            getLog().warn(descriptor + ": no report written for " + shellNoActivityTimeout
+                    + " sec, terminating the surefire forks " + pids);
+            if (!pids.isEmpty()) {
+                processHelper.terminate(new ArrayList<>(pids));
+            }
+        } catch (Exception e) {
+            getLog().error("Error while terminating the stalled surefire forks.", e);
+        }
+
+        if (!pids.isEmpty()) {
+            try {
+                run.get(gracefulShutdownTimeout, TimeUnit.SECONDS);
+                return ExecutionTimeline.TERMINATION_SIGTERM;
+            } catch (ExecutionException | TimeoutException e) {
+                // left behind below
+            }
+        }
+
+        run.cancel(true);
+        inProcessRunner = null;
+        getLog().error(descriptor + " did not stop and is left behind, later retries run in new "
+                + "Maven processes");
+        return ExecutionTimeline.TERMINATION_ABANDONED;
+    }
+
+    /**
+     * @return when the latest report was written, 0 if there is none
+     */
+    private long getLastReportTime() {
+        long lastReportTime = 0;
+        for (File report : getXmlFileList(project.getBasedir())) {
+            lastReportTime = Math.max(lastReportTime, report.lastModified());
+        }
+
+        return lastReportTime;
+    }
+
+    private int runRetryInShell(
+            String descriptor,
+            List<String> testGroups,
+            String artifactId,
+            String groupId,
+            long startTime)
+            throws MojoExecutionException {
+        final int exitCode;
+        final Map<String, String> commands = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < testGroups.size(); i++) {
+                final String groupDescriptor = testGroups.size() == 1
+                        ? descriptor
+                        : descriptor + " group#" + (i + 1) + "/" + testGroups.size();
+                final List<String> batches = splitIntoBatches(testGroups.get(i));
+
+                for (int j = 0; j < batches.size(); j++) {
+                    final String batchDescriptor = batches.size() == 1
+                            ? groupDescriptor
+                            : groupDescriptor + " batch#" + (j + 1) + "/" + batches.size();
+                    commands.put(batchDescriptor, createRetryShellCommand(
+                            batchDescriptor, batches.get(j), artifactId, groupId));
+                }
+            }
+
+            if (commands.size() > 1 && getRerunParallelism() > 1) {
+                compileOnce(artifactId, groupId);
+            }
+
+            // batches queue up for the slots, each one starts as soon as a slot is free
+            exitCode = runConcurrently(commands, getRerunParallelism());
+        } catch (IOException | InterruptedException e) {
+            throw new MojoExecutionException("Failed to retry tests! command=" + commands.values(),
+                    e);
+        }
+
+        logAttemptTime(descriptor, BACKEND_SHELL, startTime);
+        return exitCode;
+    }
+
+    private String createRetryShellCommand(
+            String descriptor, String tests, String artifactId, String groupId)
+            throws IOException {
+        final StringBuilder rerunCommand = new StringBuilder(mavenCommand + " test");
+
+        if (rerunTestsInFile) {
+            final File includesFile =
+                    new File(historyDirectory, "rerun-tests/" + toFileName(descriptor) + ".txt");
+            Files.createDirectories(includesFile.getAbsoluteFile().getParentFile().toPath());
+            Files.write(includesFile.toPath(), Arrays.asList(tests.split(",")),
+                    StandardCharsets.UTF_8);
+            rerunCommand.append(" -Dsurefire.includesFile=").append(includesFile.getPath());
+        } else {
+            rerunCommand.append(" -Dtest=").append(tests);
+        }
+
+        // early retries start while -Dtest=... of the first run is still part of the opts
+        rerunCommand.append(
+                buildProcessedMvnTestOpts(artifactId, groupId).toString()
+                        .replaceAll(TEST_REGEX, ""));
+        if (rerunProfile != null) {
+            String trimmedRerunProfile = rerunProfile.replaceAll("\"", "");
+            rerunCommand.append(" -P ").append(trimmedRerunProfile);
+        }
+
+        return rerunCommand.toString();
+    }
+
+    /**
+     * Splits the given tests into batches of at most {@link #rerunBatchMaxLength} characters.
+     * Batches are split between classes only, so a single class may exceed the limit.
+     *
+     * @param tests tests in the format of surefire's test parameter
+     */
+    List<String> splitIntoBatches(String tests) {
+        final int maxLength = rerunBatchMaxLength != null && rerunBatchMaxLength > 0
+                ? rerunBatchMaxLength
+                : Integer.MAX_VALUE;
+        final List<String> batches = new ArrayList<>();
+        StringBuilder batch = new StringBuilder();
+
+        // method patterns are separated by '+', so every ',' separates two classes
+        for (String classTests : tests.split(",")) {
+            if (classTests.isEmpty()) {
+                continue;
+            }
+
+            if (batch.length() > 0 && batch.length() + 1 + classTests.length() > maxLength) {
+                batches.add(batch.toString());
+                batch = new StringBuilder();
+            }
+
+            if (batch.length() > 0) {
+                batch.append(',');
+            }
+            batch.append(classTests);
+        }
+
+        if (batch.length() > 0) {
+            batches.add(batch.toString());
+        }
+
+        return batches;
+    }
+
+    /**
+     * @param testGroups tests in the format of surefire's test parameter
+     * @return names of the classes the tests belong to
+     */
+    static Set<String> getClassNames(List<String> testGroups) {
+        final Set<String> classNames = new TreeSet<>();
+        for (String tests : testGroups) {
+            for (String classTests : tests.split(",")) {
+                final int methodIndex = classTests.indexOf('#');
+                if (!classTests.isEmpty()) {
+                    classNames.add(
+                            methodIndex < 0 ? classTests : classTests.substring(0, methodIndex));
+                }
+            }
+        }
+
+        return classNames;
+    }
 
-    @Parameter(property = "mavenCommand", defaultValue = "mvn", readonly = true)
-    String mavenCommand = "mvn";
+    /**
+     * @param durations milliseconds each class is expected to take
+     */
+    /**
+     * A retry mostly reruns a few methods of a class, which take a fraction of its recorded
+     * duration. Classes are estimated by the durations of the failed test cases they rerun, see
+     * {@link RetryBudget#estimateCosts}, and classes rerun as a whole by their recorded duration.
+     *
+     * @param failures test cases to rerun, by class
+     * @param incompleteClasses classes to rerun as a whole, since they have no report
+     * @return milliseconds each class is estimated to take to rerun
+     */
+    static Map<String, Long> estimateRetryDurations(
+            List<RunResult> results,
+            Map<String, List<String>> failures,
+            Collection<String> incompleteClasses,
+            Map<String, Long> durations) {
+        final Map<String, Long> classDurations = new HashMap<>();
+        RetryBudget.estimateCosts(results, failures, incompleteClasses, durations)
+                .forEach((test, cost) -> {
+                    final int methodIndex = test.indexOf('#');
+                    classDurations.merge(
+                            methodIndex < 0 ? test : test.substring(0, methodIndex),
+                            cost, Long::sum);
+                });
+
+        return classDurations;
+    }
 
-    @Parameter(property = "mvnTestOpts", readonly = true)
-    String mvnTestOpts;
+    private void startProgress(
+            String descriptor, Collection<String> classes, Map<String, Long> durations) {
+        final ProgressTracker tracker = new ProgressTracker(descriptor, classes, durations,
+                System.currentTimeMillis());
+        progress = tracker;
+
+        if (progressInterval != null && progressInterval > 0) {
+            if (progressReporter == null) {
+                progressReporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "supertest-progress");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
 
-    @Parameter(property = "rerunProfile", readonly = true)
-    String rerunProfile;
+            progressReport = progressReporter.scheduleAtFixedRate(
+                    () -> getLog().info(tracker.getStatusLine(System.currentTimeMillis())),
+                    progressInterval, progressInterval, TimeUnit.SECONDS);
+        }
+    }
 
-    @Parameter(property = "retryRunCount", readonly = true, defaultValue = "1")
-    Integer retryRunCount;
+    private void finishProgress() {
+        if (progressReport != null) {
+            progressReport.cancel(false);
+            progressReport = null;
+        }
 
-    // in seconds
-    @Parameter(property = "shellNoActivityTimeout", readonly = true, defaultValue = "300")
-    Integer shellNoActivityTimeout;
+        final ProgressTracker tracker = progress;
+        progress = null;
+        if (tracker != null) {
+            getLog().info(tracker.getSummary(System.currentTimeMillis()));
+        }
+    }
 
-    @Parameter(property = "gracefulShutdownTimeout", readonly = true, defaultValue = "60")
-    Integer gracefulShutdownTimeout;
+    private void logAttemptTime(String descriptor, String backend, long startTime) {
+        getLog().info(descriptor + " took " + (System.currentTimeMillis() - startTime)
+                + " ms with the " + backend + " backend");
+    }
 
-    @Parameter(property = "includes" )
-    List<String> includes;
+    /**
+     * Runs all test classes once. If enabled, the classes which failed in the previous build are
+     * run first, as a separate leading batch.
+     */
+    private int runFirstRun(
+            Set<String> allTestClasses, boolean subset, String artifactId, String groupId)
+            throws MojoExecutionException {
+        final Set<String> leadingClasses = getFailuresFirstClasses(allTestClasses);
+        final Set<String> remainingClasses = new TreeSet<>(allTestClasses);
+        int exitCode = 0;
+
+        if (!leadingClasses.isEmpty()) {
+            // -Dtest=... was already applied when resolving the test classes, the leading batch
+            // and the rest of the run each run their own subset of them instead
+            mvnTestOpts = mvnTestOpts.replaceAll(TEST_REGEX, "");
+            remainingClasses.removeAll(leadingClasses);
+
+            final Map<String, String> commands = new LinkedHashMap<>();
+            final List<String> batches = splitIntoBatches(String.join(",", leadingClasses));
+            for (int i = 0; i < batches.size(); i++) {
+                commands.put(batches.size() == 1
+                                ? "supertest run#1 failures-first"
+                                : "supertest run#1 failures-first batch#" + (i + 1) + "/"
+                                        + batches.size(),
+                        mavenCommand + " test -Dtest=" + batches.get(i)
+                                + buildProcessedMvnTestOpts(artifactId, groupId));
+            }
 
-    @Parameter(property = "excludes" )
-    List<String> excludes;
+            try {
+                exitCode = runConcurrently(commands, 1);
+            } catch (IOException | InterruptedException e) {
+                throw new MojoExecutionException("Failed to run " + commands.values(), e);
+            }
 
-    public void execute() throws MojoExecutionException, MojoFailureException {
-        if (mvnTestOpts == null) {
-            mvnTestOpts = "";
+            if (exitCode != 0) {
+                getLog().error("Classes which failed in the previous build failed again: "
+                        + String.join(",", leadingClasses));
+            }
         }
 
-        mvnTestOpts = mvnTestOpts.trim();
-        if (mvnTestOpts.startsWith("\"")) {
-            mvnTestOpts = mvnTestOpts.substring(1);
+        final Map<String, String> commands = createFirstRunCommands(remainingClasses,
+                subset || !leadingClasses.isEmpty(), timingStore.getDurations(), artifactId,
+                groupId);
+        try {
+            // batches of the shards queue up for a slot per shard
+            final int remainingExitCode = runConcurrently(commands, getShards());
+            return exitCode != 0 ? exitCode : remainingExitCode;
+        } catch (IOException | InterruptedException e) {
+            throw new MojoExecutionException("Failed to run " + commands.values(), e);
         }
+    }
 
-        if (mvnTestOpts.endsWith("\"")) {
-            mvnTestOpts = mvnTestOpts.substring(0, mvnTestOpts.length() - 1);
+    private Set<String> getFailuresFirstClasses(Set<String> allTestClasses) {
+        if (!failuresFirst) {
+            return Collections.emptySet();
         }
 
-        final File baseDir = project.getBasedir();
-        final String artifactId = project.getArtifactId();
-        final String groupId = project.getGroupId();
+        final Set<String> failedClasses;
+        try {
+            failedClasses = failedClassesStore.load();
+        } catch (IOException e) {
+            getLog().warn("Failed to load the classes which failed in the previous build", e);
+            return Collections.emptySet();
+        }
 
-        pool = Executors.newFixedThreadPool(1);
-        String testClassesDir = project.getBuild().getTestOutputDirectory();
+        failedClasses.retainAll(allTestClasses);
 
-        Set<String> allTestClasses = new HashSet<>(
-                new TestListResolver(
-                        includes, excludes, getTest(), testClassesDir).scanDirectories());
+        // a leading batch of all classes would just run everything twice
+        return failedClasses.size() < allTestClasses.size()
+                ? failedClasses
+                : Collections.emptySet();
+    }
 
-        getLog().info("Test classes dir: " + testClassesDir);
-        getLog().debug("Test classes found: " + String.join(",", allTestClasses));
+    private void recordFailedClasses(List<RunResult> firstRunResults) {
+        final List<String> failedClasses = new ArrayList<>();
+        for (RunResult result : firstRunResults) {
+            if (!result.getFailedTestCases().isEmpty()) {
+                failedClasses.add(result.getClassName());
+            }
+        }
 
-        int exitCode;
-        final String command =
-                mavenCommand + " test " + buildProcessedMvnTestOpts(artifactId, groupId);
         try {
-            exitCode = runShellCommand(command, "supertest run#1");
-        } catch (IOException | InterruptedException e) {
-            throw new MojoExecutionException("Failed to run " + command, e);
+            failedClassesStore.save(failedClasses);
+        } catch (IOException e) {
+            getLog().warn("Failed to save the classes which failed", e);
         }
+    }
 
-        if (exitCode == 0) {
-            return;
+    private static Map<String, List<String>> toFailureMap(List<RunResult> results) {
+        final Map<String, List<String>> classnameToTestcaseList = new TreeMap<>();
+        for (RunResult runResult : results) {
+            classnameToTestcaseList.put(runResult.getClassName(), runResult.getFailedTestCases());
         }
 
-        // Strip -Dtest=... from the Maven opts if specified, since these were valid for the very first run only.
-        mvnTestOpts = mvnTestOpts.replaceAll(TEST_REGEX, "");
+        return classnameToTestcaseList;
+    }
 
-        for (int retryRunNumber = 1; retryRunNumber <= retryRunCount; retryRunNumber++) {
-            final File[] xmlFileList = getXmlFileList(baseDir);
-            final Map<String, List<String>> classnameToTestcaseList = new HashMap<>();
-            for (File file : xmlFileList) {
-                final SurefireReportParser parser = new SurefireReportParser(file);
-                final RunResult runResult;
-                try {
-                    runResult = parser.parse();
-                } catch (ParserConfigurationException | IOException | SAXException e) {
-                    throw new MojoExecutionException(
-                            "Failed to parse surefire report! file=" + file, e);
+    private static Set<String> getFailedTests(Map<String, List<String>> classnameToTestcaseList) {
+        final Set<String> failedTests = new TreeSet<>();
+        classnameToTestcaseList.forEach((className, testCases) -> testCases.forEach(
+                testCase -> failedTests.add(FlakyTestHistory.testId(className, testCase))));
+
+        return failedTests;
+    }
+
+    /**
+     * Removes the tests which should not be retried from the failures.
+     *
+     * @return the removed tests
+     */
+    private static Set<String> withhold(
+            Map<String, List<String>> classnameToTestcaseList, Predicate<String> withheld) {
+        final Set<String> withheldTests = new TreeSet<>();
+
+        for (Map.Entry<String, List<String>> entry : classnameToTestcaseList.entrySet()) {
+            final List<String> retried = new ArrayList<>();
+
+            for (String testCase : entry.getValue()) {
+                String test = FlakyTestHistory.testId(entry.getKey(), testCase);
+
+                if (withheld.test(test)) {
+                    withheldTests.add(test);
+                } else {
+                    retried.add(testCase);
                 }
-                classnameToTestcaseList.put(
-                        runResult.getClassName(), runResult.getFailedTestCases());
             }
 
-            final String runCommand = createRerunCommand(allTestClasses, classnameToTestcaseList);
+            entry.setValue(retried);
+        }
+
+        return withheldTests;
+    }
 
-            // previous run exited with code > 0, but all tests were actually run successfully
-            if (runCommand == null) {
-                return;
-            }
+    /**
+     * @return true if every test still failing is known to be flaky
+     */
+    private boolean isQuarantined(
+            Set<String> allTestClasses, Map<String, List<String>> finalFailures) {
+        if (!finalFailures.keySet().containsAll(allTestClasses)) {
+            // some classes did not complete, there's no telling what's wrong with them
+            return false;
+        }
 
-            final StringBuilder rerunCommand = new StringBuilder(runCommand);
-            rerunCommand.append(buildProcessedMvnTestOpts(artifactId, groupId));
-            if (rerunProfile != null) {
-                String trimmedRerunProfile = rerunProfile.replaceAll("\"", "");
-                rerunCommand.append(" -P ").append(trimmedRerunProfile);
-            }
+        final Set<String> failedTests = getFailedTests(finalFailures);
+        if (failedTests.isEmpty()
+                || !failedTests.stream().allMatch(flakyTestHistory::isKnownFlaky)) {
+            return false;
+        }
 
-            try {
-                exitCode = runShellCommand(rerunCommand.toString(),
-                        "supertest retry run#" + retryRunNumber);
-            } catch (IOException | InterruptedException e) {
-                throw new MojoExecutionException("Failed to retry tests! command=" + rerunCommand,
-                        e);
+        getLog().warn("Quarantined, since these tests are known to be flaky: "
+                + String.join(",", failedTests));
+        return true;
+    }
+
+    private void recordFlakyTestHistory(
+            Set<String> firstRunFailures,
+            Set<String> retriedTests,
+            Set<String> withheldTests,
+            Map<String, List<String>> finalFailures) {
+        final Map<String, Boolean> outcomes = new TreeMap<>();
+
+        for (String test : firstRunFailures) {
+            if (retriedTests.contains(test)) {
+                outcomes.put(test, !isStillFailing(test, finalFailures));
             }
+        }
 
-            if (exitCode == 0) {
-                break;
+        try {
+            flakyTestHistory.append(System.currentTimeMillis(), outcomes, withheldTests);
+        } catch (IOException e) {
+            getLog().warn("Failed to save the flaky test history", e);
+        }
+    }
+
+    static boolean isStillFailing(String test, Map<String, List<String>> finalFailures) {
+        final int methodIndex = test.indexOf('#');
+        final String className = methodIndex < 0 ? test : test.substring(0, methodIndex);
+        final List<String> failedTestCases = finalFailures.get(className);
+
+        if (failedTestCases == null) {
+            // the last retry did not complete the class
+            return true;
+        }
+
+        if (methodIndex < 0) {
+            return !failedTestCases.isEmpty();
+        }
+
+        return failedTestCases.contains("")
+                || failedTestCases.contains(test.substring(methodIndex + 1));
+    }
+
+    /**
+     * @param testClasses test classes to be run
+     * @param subset whether the test classes are only a subset of the resolved ones, in which
+     *         case they are always passed as an explicit -Dtest=... list
+     * @return commands of the first run, keyed by their descriptor; there is more than one
+     *         command only if the run is sharded, or if a test list is too long for a single
+     *         command line, in which case it is split into batches like the ones of retries
+     */
+    Map<String, String> createFirstRunCommands(
+            Set<String> testClasses,
+            boolean subset,
+            Map<String, Long> durations,
+            String artifactId,
+            String groupId) {
+        final Map<String, String> commands = new LinkedHashMap<>();
+        final List<List<String>> plan =
+                new ShardPlanner(durations).plan(testClasses, getShards());
+
+        if (plan.size() <= 1 && !subset) {
+            commands.put("supertest run#1",
+                    mavenCommand + " test " + buildProcessedMvnTestOpts(artifactId, groupId));
+            return commands;
+        }
+
+        // -Dtest=... was already applied when resolving the test classes, each shard runs
+        // its own subset of them instead
+        mvnTestOpts = mvnTestOpts.replaceAll(TEST_REGEX, "");
+
+        final List<List<String>> batches = new ArrayList<>();
+        int maxBatches = 0;
+        for (List<String> shard : plan) {
+            batches.add(splitIntoBatches(String.join(",", shard)));
+            maxBatches = Math.max(maxBatches, batches.get(batches.size() - 1).size());
+        }
+
+        // the first batches of all shards come first, so that each shard starts right away
+        for (int j = 0; j < maxBatches; j++) {
+            for (int i = 0; i < plan.size(); i++) {
+                final List<String> shardBatches = batches.get(i);
+                if (j >= shardBatches.size()) {
+                    continue;
+                }
+
+                final String shardDescriptor = plan.size() == 1
+                        ? "supertest run#1"
+                        : "supertest run#1 shard#" + (i + 1) + "/" + plan.size();
+                commands.put(shardBatches.size() == 1
+                                ? shardDescriptor
+                                : shardDescriptor + " batch#" + (j + 1) + "/"
+                                        + shardBatches.size(),
+                        mavenCommand + " test -Dtest=" + shardBatches.get(j)
+                                + buildProcessedMvnTestOpts(artifactId, groupId));
             }
         }
 
-        pool.shutdown();
+        return commands;
+    }
+
+    private void recordTimings(List<RunResult> results) {
+        timingStore.update(results);
 
-        if (exitCode != 0) {
-            System.exit(1);
+        try {
+            timingStore.save();
+        } catch (IOException e) {
+            getLog().warn("Failed to save test durations", e);
         }
     }
 
+    int getShards() {
+        return shards != null && shards > 0 ? shards : 1;
+    }
+
+    int getRerunParallelism() {
+        return rerunParallelism != null && rerunParallelism > 0 ? rerunParallelism : 1;
+    }
+
+    int getTestDiscoveryThreads() {
+        return testDiscoveryThreads != null && testDiscoveryThreads > 0
+                ? testDiscoveryThreads
+                : 1;
+    }
+
+    int getReportParserThreads() {
+        return reportParserThreads != null && reportParserThreads > 0
+                ? reportParserThreads
+                : Runtime.getRuntime().availableProcessors();
+    }
+
     public String getTest() {
         if (mvnTestOpts == null) {
             return "";
@@ -179,36 +1551,178 @@ public class SuperTestMavenPlugin extends AbstractMojo {
     private StringBuilder buildProcessedMvnTestOpts(String artifactId, String groupId) {
         final StringBuilder processedMvnTestOpts = new StringBuilder(" ");
         processedMvnTestOpts.append(mvnTestOpts);
+        if (compiled) {
+            processedMvnTestOpts.append(SKIP_COMPILATION_OPTS);
+        }
         processedMvnTestOpts.append(" -pl ").append(groupId);
         processedMvnTestOpts.append(":").append(artifactId);
         return processedMvnTestOpts;
     }
 
+    /**
+     * Compiles the project once, before several Maven processes run its tests concurrently, which
+     * would otherwise all compile it into the same output directories.
+     */
+    private void compileOnce(String artifactId, String groupId) throws MojoExecutionException {
+        if (compiled) {
+            return;
+        }
+
+        final String command = mavenCommand + " test-compile"
+                + buildProcessedMvnTestOpts(artifactId, groupId);
+        final int exitCode;
+        try {
+            exitCode = runShellCommand(command, COMPILE_DESCRIPTOR);
+        } catch (IOException | InterruptedException e) {
+            throw new MojoExecutionException("Failed to run " + command, e);
+        }
+
+        try {
+            timeline.appendCompile(COMPILE_DESCRIPTOR);
+        } catch (IOException e) {
+            getLog().warn("Failed to append " + COMPILE_DESCRIPTOR + " to the timeline", e);
+        }
+
+        if (exitCode != 0) {
+            throw new MojoExecutionException("Failed to compile the project, exit code "
+                    + exitCode + ": " + command);
+        }
+
+        compiled = true;
+    }
+
+    private void startAttempt() {
+        // only reports written from now on belong to this attempt, all others are either
+        // ingested already, or are left over from an earlier build
+        reportCollector.markRunStart(getXmlFileList(project.getBasedir()));
+    }
+
+    /**
+     * Runs the given commands, at most the given number of them at a time, in their order.
+     *
+     * @param commands shell commands to be executed, keyed by their descriptor
+     * @return 0 if all commands succeeded, otherwise the first non-zero exit value
+     */
+    private int runConcurrently(Map<String, String> commands, int slots)
+            throws IOException, InterruptedException {
+        if (commands.size() == 1 || slots <= 1) {
+            int exitCode = 0;
+            for (Map.Entry<String, String> command : commands.entrySet()) {
+                int commandExitCode = runShellCommand(command.getValue(), command.getKey());
+                if (exitCode == 0) {
+                    exitCode = commandExitCode;
+                }
+            }
+
+            return exitCode;
+        }
+
+        final ExecutorService runners =
+                Executors.newFixedThreadPool(Math.min(commands.size(), slots));
+        try {
+            final List<Future<Integer>> exitCodes = new ArrayList<>();
+            commands.forEach((descriptor, command) ->
+                    exitCodes.add(runners.submit(() -> runShellCommand(command, descriptor))));
+
+            int exitCode = 0;
+            for (Future<Integer> future : exitCodes) {
+                int commandExitCode = getExitCode(future);
+                if (exitCode == 0) {
+                    exitCode = commandExitCode;
+                }
+            }
+
+            return exitCode;
+        } finally {
+            runners.shutdownNow();
+        }
+    }
+
+    private int getExitCode(Future<Integer> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw new IOException(e.getCause());
+        }
+    }
+
     /**
      * @param command shell command to be executed
      * @return process exit value, returns 1 if failure
      */
     public int runShellCommand(final String command, final String commandDescriptor)
             throws IOException, InterruptedException {
+        return runShellCommand(command, commandDescriptor, shellNoActivityTimeout);
+    }
+
+    /**
+     * @param noActivityTimeout seconds without output after which the process is shut down
+     */
+    private int runShellCommand(
+            final String command, final String commandDescriptor, int noActivityTimeout)
+            throws IOException, InterruptedException {
+        if (resourceGovernor == null) {
+            return runShellCommandNow(command, commandDescriptor, noActivityTimeout);
+        }
+
+        resourceGovernor.acquire(commandDescriptor);
+        try {
+            return runShellCommandNow(command, commandDescriptor, noActivityTimeout);
+        } finally {
+            resourceGovernor.release(commandDescriptor);
+        }
+    }
+
+    private int runShellCommandNow(
+            final String command, final String commandDescriptor, int noActivityTimeout)
+            throws IOException, InterruptedException {
         getLog().info("Running " + command);
+        final long startTime = System.currentTimeMillis();
         ProcessBuilder pb = new ProcessBuilder(getShellCommandAsArray(command));
         pb.redirectErrorStream(true);
         Process proc = pb.start();
-        readProcessStdOut(proc, commandDescriptor);
+        readProcessStdOut(proc, commandDescriptor, noActivityTimeout);
 
         // we don't want to wait forever, if something breaks
         boolean exited = proc.waitFor(STDOUT_POST_READ_WAIT_TIMEOUT, TimeUnit.SECONDS);
 
+        final int exitCode;
+        final String termination;
         if (exited) {
-            return proc.exitValue();
+            exitCode = proc.exitValue();
+            termination = ExecutionTimeline.TERMINATION_EXIT;
         } else {
-            shutdown(proc);
+            termination = shutdown(proc);
+            exitCode = 1;
+        }
+
+        if (timeline != null) {
+            timeline.recordProcess(commandDescriptor, command, startTime,
+                    System.currentTimeMillis(), exitCode, termination);
+        }
+
+        return exitCode;
+    }
 
-            return 1;
+    /**
+     * @return how the process was terminated, see {@link ExecutionTimeline}
+     */
+    private String shutdown(Process proc) throws InterruptedException {
+        final long startTime = System.currentTimeMillis();
+        try {
+            return shutdownGracefullyOrForcibly(proc);
+        } finally {
+            if (metrics != null) {
+                metrics.addShutdownTime(System.currentTimeMillis() - startTime);
+            }
         }
     }
 
-    private void shutdown(Process proc) throws InterruptedException {
+    private String shutdownGracefullyOrForcibly(Process proc) throws InterruptedException {
         // tries to gracefully shutdown first
         gracefullyShutdown(proc);
 
@@ -219,9 +1733,11 @@ public class SuperTestMavenPlugin extends AbstractMojo {
             getLog().info("Process did not shutdown within " + gracefulShutdownTimeout
                     + " sec, killing it forcibly now...");
             proc.destroyForcibly();
-        } else {
-            getLog().info("Process shutdown successfully upon time out.");
+            return ExecutionTimeline.TERMINATION_SIGKILL;
         }
+
+        getLog().info("Process shutdown successfully upon time out.");
+        return ExecutionTimeline.TERMINATION_SIGTERM;
     }
 
     private void gracefullyShutdown(Process proc) {
@@ -233,8 +1749,8 @@ public class SuperTestMavenPlugin extends AbstractMojo {
             try {
                 List<Long> leaves = processHelper.getLeaves(processHelper.getPid(proc));
 
-                for (long pid : leaves) {
-                    processHelper.sendSIGTERM(pid);
+                if (!leaves.isEmpty()) {
+                    processHelper.terminate(leaves);
                 }
             } catch (Exception e) {
                 getLog().error("Error while gracefully shutting down.", e);
@@ -258,21 +1774,30 @@ public class SuperTestMavenPlugin extends AbstractMojo {
         return cmdArray;
     }
 
-    private void readProcessStdOut(Process proc, String commandDescriptor) {
-        InputStream inputStream = proc.getInputStream();
-        InputStreamReader inputStreamReader = new InputStreamReader(inputStream);
-        BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
+    private void readProcessStdOut(
+            Process proc, String commandDescriptor, int noActivityTimeout) {
+        // classes of a single class attempt are not isolated any further
+        final boolean isolateHangs = hangIsolation
+                && !commandDescriptor.startsWith(EARLY_RETRY_DESCRIPTOR)
+                && !commandDescriptor.startsWith(ISOLATED_RERUN_DESCRIPTOR);
+        final RunningClassTracker runningClasses = new RunningClassTracker();
         AtomicLong lastOutputTime = new AtomicLong(System.currentTimeMillis());
         CountDownLatch countDownLatch = new CountDownLatch(1);
+        OutputPump pump = new OutputPump(proc.getInputStream(), commandDescriptor,
+                outputLogDirectory != null
+                        ? new File(outputLogDirectory, toFileName(commandDescriptor) + ".log")
+                        : null,
+                verbosity,
+                line -> {
+                    runningClasses.onOutputLine(line);
+                    onOutputLine(commandDescriptor, line);
+                },
+                lines -> logWriter.execute(() -> lines.forEach(getLog()::info)),
+                lastOutputTime);
 
         Future<?> task = pool.submit(() -> {
-            String line;
-
             try {
-                while ((line = bufferedReader.readLine()) != null) {
-                    getLog().info(commandDescriptor + ": " + line);
-                    lastOutputTime.set(System.currentTimeMillis());
-                }
+                pump.run();
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -283,9 +1808,23 @@ public class SuperTestMavenPlugin extends AbstractMojo {
 
         boolean isDone = task.isDone();
 
-        while (!isDone && hasRecentShellActivity(lastOutputTime.get())) {
+        while (!isDone) {
+            if (!hasRecentShellActivity(lastOutputTime.get(), noActivityTimeout)) {
+                if (metrics != null) {
+                    metrics.incrementNoActivityTimeouts();
+                }
+
+                if (!isolateHangs || !terminateHungForks(
+                        proc, commandDescriptor, noActivityTimeout, runningClasses)) {
+                    break;
+                }
+
+                // the remaining classes get the full timeout again
+                lastOutputTime.set(System.currentTimeMillis());
+            }
+
             try {
-                isDone = countDownLatch.await(shellNoActivityTimeout, TimeUnit.SECONDS);
+                isDone = countDownLatch.await(noActivityTimeout, TimeUnit.SECONDS);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
@@ -301,11 +1840,121 @@ public class SuperTestMavenPlugin extends AbstractMojo {
 
             getLog().info(commandDescriptor + ": Read stdout error - " + getStackTrace(e));
         }
+
+        flushLog();
+    }
+
+    private void onOutputLine(String commandDescriptor, String line) {
+        // early retries run next to an attempt, but are not part of it
+        final ProgressTracker tracker = progress;
+        if (tracker != null && !commandDescriptor.startsWith(EARLY_RETRY_DESCRIPTOR)) {
+            tracker.onOutputLine(line);
+        }
+
+        final EarlyRetryScheduler scheduler = earlyRetryScheduler;
+        if (scheduler != null) {
+            scheduler.onOutputLine(line);
+        }
+    }
+
+    /**
+     * Waits for the output pumped so far to be logged, so that it is not mixed up with what's
+     * logged next.
+     */
+    private void flushLog() {
+        try {
+            logWriter.submit(() -> { }).get(STDOUT_POST_READ_WAIT_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            getLog().warn("Timed out waiting for the output to be logged", e);
+        }
+    }
+
+    /**
+     * Creates the executor writing output to the Maven log. When its queue is full, submitting
+     * blocks, so that output which cannot be logged fast enough stays in the pipes of the
+     * processes rather than piling up on the heap, and lines keep their order.
+     */
+    static ExecutorService createLogWriter(int queueCapacity) {
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "supertest-log-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("The log writer is shut down");
+                    }
+
+                    try {
+                        executor.getQueue().put(runnable);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException(e);
+                    }
+                });
+    }
+
+    static String toFileName(String descriptor) {
+        return descriptor.replaceAll("[^\\w.-]+", "_");
+    }
+
+    /**
+     * Terminates the surefire forks running the classes which did not complete, together with
+     * the processes they started. Other forks and processes keep running, and so does the Maven
+     * process, so that the remaining classes can finish.
+     *
+     * @return false if the hang cannot be isolated, e.g. since it's not within a test class, the
+     *         classes cannot be attributed to their forks, or they were isolated before already
+     */
+    private boolean terminateHungForks(
+            Process proc,
+            String commandDescriptor,
+            int noActivityTimeout,
+            RunningClassTracker runningClasses) {
+        final Set<String> hung = runningClasses.getRunningClasses();
+        if (hung.isEmpty() || !processHelper.isUnixProcess(proc)) {
+            return false;
+        }
+
+        try {
+            final Map<String, Long> forks =
+                    forkLocator.locate(processHelper.getPid(proc), hung);
+            if (!forks.keySet().containsAll(hung)) {
+                final Set<String> unlocated = new TreeSet<>(hung);
+                unlocated.removeAll(forks.keySet());
+                getLog().warn(commandDescriptor + ": no output for " + noActivityTimeout
+                        + " sec, but the surefire forks running " + String.join(",", unlocated)
+                        + " cannot be told apart, the hang cannot be isolated");
+                return false;
+            }
+
+            final Set<Long> pids = new TreeSet<>();
+            for (long fork : new TreeSet<>(forks.values())) {
+                pids.add(fork);
+                pids.addAll(processHelper.getDescendants(fork));
+            }
+
+            getLog().warn(commandDescriptor + ": no output for " + noActivityTimeout
+                    + " sec, terminating the surefire forks " + new TreeSet<>(forks.values())
+                    + " running " + String.join(",", hung) + "; they will be rerun on their own");
+            processHelper.terminate(new ArrayList<>(pids));
+        } catch (Exception e) {
+            getLog().error("Error while terminating the stalled processes.", e);
+            return false;
+        }
+
+        runningClasses.remove(hung);
+        hungClasses.addAll(hung);
+        return true;
     }
 
-    private boolean hasRecentShellActivity(long lastTime) {
+    private boolean hasRecentShellActivity(long lastTime, int noActivityTimeout) {
         return System.currentTimeMillis() - lastTime
-                < TimeUnit.SECONDS.toMillis(shellNoActivityTimeout);
+                < TimeUnit.SECONDS.toMillis(noActivityTimeout);
     }
 
     private String getStackTrace(Exception e) {
@@ -335,14 +1984,25 @@ public class SuperTestMavenPlugin extends AbstractMojo {
      */
     public String createRerunCommand(
             Set<String> allTestClasses, Map<String, List<String>> classnameToTestcaseList) {
-        final StringBuilder retryRun = new StringBuilder(mavenCommand + " test");
-        Set<String> incompleteTests = new HashSet<>(allTestClasses);
+        final String rerunTests = createRerunTests(allTestClasses, classnameToTestcaseList);
+        return rerunTests != null ? mavenCommand + " test -Dtest=" + rerunTests : null;
+    }
+
+    /**
+     * @param classnameToTestcaseList map of classname and list of failed test cases
+     * @return the tests to rerun, in the format of surefire's test parameter, or null if there
+     *         are none
+     */
+    String createRerunTests(
+            Set<String> allTestClasses, Map<String, List<String>> classnameToTestcaseList) {
+        final StringBuilder retryRun = new StringBuilder();
+        // sorted, so that the command does not depend on the order in which reports were parsed
+        Set<String> incompleteTests = new TreeSet<>(allTestClasses);
 
-        retryRun.append(" -Dtest=");
         int emptyRetryRunLen = retryRun.length();
 
         // TODO: 04/02/2022 replace with Java 8 streams
-        for (String className : classnameToTestcaseList.keySet()) {
+        for (String className : new TreeSet<>(classnameToTestcaseList.keySet())) {
             // if a test class is in the surefire report, it means that all its tests were executed
             incompleteTests.remove(className);
             List<String> failedTestCaseList = classnameToTestcaseList.get(className);
@@ -366,6 +2026,44 @@ public class SuperTestMavenPlugin extends AbstractMojo {
         return retryRun.length() != emptyRetryRunLen ? retryRun.toString() : null;
     }
 
+    /**
+     * Splits the tests to rerun into at most {@link #getRerunParallelism()} groups of whole
+     * classes, balanced by the known class durations.
+     *
+     * @return the groups, each in the format of surefire's test parameter
+     */
+    List<String> createRerunTestGroups(
+            Set<String> allTestClasses,
+            Map<String, List<String>> classnameToTestcaseList,
+            Map<String, Long> durations) {
+        final Map<String, String> testsByClass = new TreeMap<>();
+
+        for (String className : allTestClasses) {
+            if (!classnameToTestcaseList.containsKey(className)) {
+                // the class did not complete, it is rerun as a whole
+                testsByClass.put(className, className);
+            }
+        }
+
+        classnameToTestcaseList.forEach((className, failedTestCaseList) -> {
+            if (!failedTestCaseList.isEmpty()) {
+                final StringBuilder tests = new StringBuilder();
+                appendFailedTestCases(className, failedTestCaseList, tests);
+                // strip the trailing separator
+                testsByClass.put(className, tests.substring(0, tests.length() - 1));
+            }
+        });
+
+        final List<String> groups = new ArrayList<>();
+        for (List<String> classNames : new ShardPlanner(durations)
+                .plan(testsByClass.keySet(), getRerunParallelism())) {
+            groups.add(classNames.stream().map(testsByClass::get)
+                    .collect(Collectors.joining(",")));
+        }
+
+        return groups;
+    }
+
     private void appendFailedTestCases(
             String className, List<String> failedTestCaseList, StringBuilder retryRun) {
         retryRun.append(className);
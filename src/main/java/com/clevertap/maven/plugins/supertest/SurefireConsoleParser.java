@@ -0,0 +1,115 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the per-class summary lines which surefire prints to the console as soon as a test class
+ * completes, e.g. (on a single line)
+ *
+ * <pre>
+ * [ERROR] Tests run: 3, Failures: 1, Errors: 0, Skipped: 0, Time elapsed: 0.5 s
+ *         &lt;&lt;&lt; FAILURE! - in com.example.FooTest
+ * </pre>
+ *
+ * <p>as well as the lines surefire prints when a test class starts, e.g.
+ * {@code [INFO] Running com.example.FooTest}.
+ *
+ * <p>The XML reports remain the source of truth, these lines only give an early indication.
+ */
+public class SurefireConsoleParser {
+    private static final Pattern ANSI_ESCAPE_PATTERN = Pattern.compile("\u001B\\[[;\\d]*m");
+    private static final Pattern TEST_SET_PATTERN = Pattern.compile(
+            "Tests run: (\\d+), Failures: (\\d+), Errors: (\\d+), Skipped: (\\d+), "
+                    + "Time elapsed: ([\\d.,]+) s(?:ec)?.* - in (\\S+)");
+    private static final Pattern RUNNING_PATTERN =
+            Pattern.compile("^(?:\\[\\w+] )?Running (\\S+)\\s*$");
+
+    private SurefireConsoleParser() {
+        // prevents instance creation
+    }
+
+    /**
+     * @return the summary of a test class, or null if the line is not one
+     */
+    public static TestSetSummary parse(String line) {
+        if (line.indexOf("Tests run: ") < 0) {
+            return null;
+        }
+
+        final Matcher matcher =
+                TEST_SET_PATTERN.matcher(ANSI_ESCAPE_PATTERN.matcher(line).replaceAll(""));
+        if (!matcher.find()) {
+            return null;
+        }
+
+        return new TestSetSummary(matcher.group(6),
+                Integer.parseInt(matcher.group(1)),
+                Integer.parseInt(matcher.group(2)),
+                Integer.parseInt(matcher.group(3)),
+                Integer.parseInt(matcher.group(4)),
+                SurefireReportParser.parseTime(matcher.group(5)));
+    }
+
+    /**
+     * @return the name of the test class which starts, or null if the line does not start one
+     */
+    public static String parseRunningClass(String line) {
+        if (line.indexOf("Running ") < 0) {
+            return null;
+        }
+
+        final Matcher matcher =
+                RUNNING_PATTERN.matcher(ANSI_ESCAPE_PATTERN.matcher(line).replaceAll(""));
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    public static final class TestSetSummary {
+        private final String className;
+        private final int testsRun;
+        private final int failures;
+        private final int errors;
+        private final int skipped;
+        // in seconds
+        private final double time;
+
+        TestSetSummary(
+                String className, int testsRun, int failures, int errors, int skipped,
+                double time) {
+            this.className = className;
+            this.testsRun = testsRun;
+            this.failures = failures;
+            this.errors = errors;
+            this.skipped = skipped;
+            this.time = time;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public int getTestsRun() {
+            return testsRun;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public double getTime() {
+            return time;
+        }
+
+        public boolean isFailed() {
+            return failures > 0 || errors > 0;
+        }
+    }
+}
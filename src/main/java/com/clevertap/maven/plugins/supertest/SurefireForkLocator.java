@@ -0,0 +1,132 @@
+package com.clevertap.maven.plugins.supertest;
+
+import com.clevertap.maven.plugins.supertest.util.ProcessHelper;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Finds the surefire forks of a Maven process, and the fork which runs a given test class.
+ *
+ * <p>A fork's command line ends with surefire's temporary directory, a dump file prefix and the
+ * properties files the fork reads its configuration from. Unless forks are reused, the class a
+ * fork runs is one of these properties. Reused forks are sent their classes while they run, so
+ * classes are only attributed to a reused fork if it's the only fork.
+ */
+public class SurefireForkLocator {
+    // the main class of a fork, which is launched by name or through a manifest-only jar
+    private static final String FORKED_BOOTER = "org.apache.maven.surefire.booter.ForkedBooter";
+    private static final String BOOTER_JAR_PREFIX = "surefirebooter";
+    // type|className, e.g. java.lang.String|com.example.FooTest
+    private static final String FORK_TEST_SET = "forkTestSet";
+
+    private final ProcessHelper processHelper;
+
+    public SurefireForkLocator(ProcessHelper processHelper) {
+        this.processHelper = processHelper;
+    }
+
+    /**
+     * @param mavenPid the Maven process the forks were started by
+     * @return the pid of the fork running each class; classes which cannot be attributed to a
+     *         single fork are left out
+     */
+    public Map<String, Long> locate(long mavenPid, Collection<String> classNames) {
+        final Map<Long, String> forks = findForks(mavenPid);
+        final Map<String, Long> located = new HashMap<>();
+
+        for (Map.Entry<Long, String> fork : forks.entrySet()) {
+            if (fork.getValue() != null && classNames.contains(fork.getValue())) {
+                located.put(fork.getValue(), fork.getKey());
+            }
+        }
+
+        if (forks.size() == 1 && forks.values().iterator().next() == null) {
+            final long fork = forks.keySet().iterator().next();
+            for (String className : classNames) {
+                located.putIfAbsent(className, fork);
+            }
+        }
+
+        return located;
+    }
+
+    /**
+     * @return the pids of the surefire forks among the descendants of the pid, mapped to the
+     *         class each one runs, or null for reused forks
+     */
+    Map<Long, String> findForks(long mavenPid) {
+        final Map<Long, String> forks = new LinkedHashMap<>();
+        // processes started by forks, e.g. by tests, which may run Java as well
+        final Set<Long> forkDescendants = new HashSet<>();
+
+        // parents come before their children
+        for (long pid : processHelper.getDescendants(mavenPid)) {
+            if (forkDescendants.contains(pid)) {
+                continue;
+            }
+
+            final List<String> commandLine = processHelper.getCommandLine(pid);
+            final int booter = indexOfBooter(commandLine);
+            if (booter >= 0) {
+                forks.put(pid,
+                        readForkTestSet(commandLine.subList(booter + 1, commandLine.size())));
+                forkDescendants.addAll(processHelper.getDescendants(pid));
+            }
+        }
+
+        return forks;
+    }
+
+    private static int indexOfBooter(List<String> commandLine) {
+        for (int i = 1; i < commandLine.size(); i++) {
+            final String argument = commandLine.get(i);
+            final String fileName = new File(argument).getName();
+
+            if (argument.equals(FORKED_BOOTER)
+                    || (fileName.startsWith(BOOTER_JAR_PREFIX) && fileName.endsWith(".jar"))) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param arguments the temporary directory, the dump file prefix and the properties files
+     * @return the class the fork runs, or null if it's a reused fork or the properties are gone
+     */
+    private static String readForkTestSet(List<String> arguments) {
+        if (arguments.size() < 3) {
+            return null;
+        }
+
+        final File tempDirectory = new File(arguments.get(0));
+        for (String fileName : arguments.subList(2, arguments.size())) {
+            final File file = new File(tempDirectory, fileName);
+            final Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                properties.load(in);
+            } catch (IOException e) {
+                // deleted once the fork exits
+                continue;
+            }
+
+            final String testSet = properties.getProperty(FORK_TEST_SET);
+            if (testSet != null) {
+                return testSet.substring(testSet.indexOf('|') + 1);
+            }
+        }
+
+        return null;
+    }
+}
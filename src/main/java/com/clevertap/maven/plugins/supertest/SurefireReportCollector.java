@@ -0,0 +1,217 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.xml.sax.SAXException;
+
+/**
+ * Parses surefire reports on a bounded pool of threads.
+ *
+ * <p>Results are always returned in the order of the report file names, regardless of the order
+ * in which the individual parses complete.
+ *
+ * <p>Reports are ingested incrementally: parsed results are cached by file and last-modified
+ * time, and only reports which are new or changed since the last {@link #markRunStart(File[])}
+ * are parsed. Reports which already existed when the run started and were never ingested are
+ * left over from an earlier build and are ignored.
+ */
+public class SurefireReportCollector {
+    private final int parallelism;
+    private final Map<File, IngestedReport> ingestedReports = new HashMap<>();
+    private Map<File, ReportVersion> reportsAtRunStart = new HashMap<>();
+    private ExecutorService executor;
+
+    public SurefireReportCollector(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Records the reports present before a run starts. Only reports written after this point
+     * (or reports ingested by earlier calls to {@link #collect(File[])}) will be collected.
+     *
+     * @param xmlFiles surefire reports currently present
+     */
+    public void markRunStart(File[] xmlFiles) {
+        final Map<File, ReportVersion> versions = new HashMap<>();
+        for (File file : xmlFiles) {
+            versions.put(file, ReportVersion.of(file));
+        }
+
+        reportsAtRunStart = versions;
+    }
+
+    /**
+     * @param xmlFiles surefire reports to parse
+     * @return one result per report, sorted by report file name
+     */
+    public List<RunResult> collect(File[] xmlFiles) throws MojoExecutionException {
+        final File[] sortedFiles = xmlFiles.clone();
+        Arrays.sort(sortedFiles, Comparator.comparing(File::getName));
+
+        final Map<File, ReportVersion> versions = new LinkedHashMap<>();
+        final Map<File, ReportVersion> toParse = new LinkedHashMap<>();
+
+        for (File file : sortedFiles) {
+            final ReportVersion version = ReportVersion.of(file);
+            final IngestedReport ingested = ingestedReports.get(file);
+            versions.put(file, version);
+
+            // reports which are unchanged since the run started, and weren't ingested before,
+            // are left over from an earlier build
+            if ((ingested == null || !ingested.version.equals(version))
+                    && !version.equals(reportsAtRunStart.get(file))) {
+                toParse.put(file, version);
+            }
+        }
+
+        final Iterator<RunResult> parsed = parse(toParse.keySet()).iterator();
+        for (Map.Entry<File, ReportVersion> entry : toParse.entrySet()) {
+            ingestedReports.put(
+                    entry.getKey(), new IngestedReport(entry.getValue(), parsed.next()));
+        }
+
+        final List<RunResult> results = new ArrayList<>(sortedFiles.length);
+        for (Map.Entry<File, ReportVersion> entry : versions.entrySet()) {
+            final IngestedReport ingested = ingestedReports.get(entry.getKey());
+
+            if (ingested != null && ingested.version.equals(entry.getValue())) {
+                results.add(ingested.result);
+            }
+        }
+
+        return results;
+    }
+
+    private List<RunResult> parse(Collection<File> files) throws MojoExecutionException {
+        if (parallelism == 1 || files.size() <= 1) {
+            List<RunResult> results = new ArrayList<>(files.size());
+            for (File file : files) {
+                results.add(parse(file));
+            }
+
+            return results;
+        }
+
+        final List<Future<RunResult>> futures = new ArrayList<>(files.size());
+        for (File file : files) {
+            futures.add(getExecutor().submit(() -> parse(file)));
+        }
+
+        final List<RunResult> results = new ArrayList<>(files.size());
+        try {
+            for (Future<RunResult> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while parsing surefire reports", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+
+            throw new MojoExecutionException("Failed to parse surefire reports", e.getCause());
+        }
+
+        return results;
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private RunResult parse(File file) throws MojoExecutionException {
+        try {
+            return new SurefireReportParser(file).parse();
+        } catch (ParserConfigurationException | IOException | SAXException e) {
+            throw new MojoExecutionException("Failed to parse surefire report! file=" + file, e);
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory());
+        }
+
+        return executor;
+    }
+
+    private static class ReportVersion {
+        private final long lastModified;
+        private final long length;
+
+        private ReportVersion(long lastModified, long length) {
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        static ReportVersion of(File file) {
+            // the length guards against file systems with a coarse modification time
+            return new ReportVersion(file.lastModified(), file.length());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof ReportVersion)) {
+                return false;
+            }
+
+            ReportVersion that = (ReportVersion) o;
+            return lastModified == that.lastModified && length == that.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lastModified, length);
+        }
+    }
+
+    private static class IngestedReport {
+        private final ReportVersion version;
+        private final RunResult result;
+
+        private IngestedReport(ReportVersion version, RunResult result) {
+            this.version = version;
+            this.result = result;
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(
+                    runnable, "supertest-report-parser-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -3,55 +3,68 @@ package com.clevertap.maven.plugins.supertest;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
+/**
+ * Streaming parser for surefire XML reports.
+ *
+ * <p>Only the {@code testsuite}/{@code testcase} attributes and the elements nested directly
+ * within a {@code testcase} are looked at. Captured output ({@code system-out},
+ * {@code system-err}) is never materialised, and of a failure's stack trace only the first few KB
+ * are kept for its {@link FailureSignature}, so the heap required for a report does not depend
+ * on how chatty the tests were.
+ */
 public class SurefireReportParser {
 
+    private static final List<String> FAILURE_TAGS = Arrays.asList("failure", "error",
+            "rerunFailure", "rerunError");
+
+    // enough for the first line and the top frames of almost any stack trace
+    private static final int MAX_STACK_TRACE_CHARS = 4096;
+
+    private static final SAXParserFactory FACTORY = createFactory();
+
     private final File xmlFile;
 
     SurefireReportParser(File file) {
         xmlFile = file;
     }
-    
 
     public RunResult parse() throws ParserConfigurationException, IOException, SAXException {
-        HashSet<String> uniqueNames = new HashSet<>();
-        final List<String> failureTagsList = Arrays.asList("failure", "error", "rerunFailure",
-                "rerunError");
-
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        final Document doc = builder.parse(xmlFile);
-
-        doc.getDocumentElement().normalize();
-        final Node testsuite = doc.getElementsByTagName("testsuite").item(0);
-
-        final RunResult result = new RunResult(((Element) testsuite).getAttribute("name"));
-        final NodeList testCaseList = doc.getElementsByTagName("testcase");
-
-        for (int i = 0; i < testCaseList.getLength(); i++) {
-            Node testCase = testCaseList.item(i);
-            Node n = testCase.getChildNodes()
-                    .item(1); // TODO: 04/02/2022 will fail if retry count is 0
-            if (testCase.hasChildNodes() && failureTagsList.contains(n.getNodeName())) {
-                Element testCaseElement = (Element) testCase;
-                String name = getLegalIdentifierName(testCaseElement.getAttribute("name"));
-                uniqueNames.add(name);
-            }
+        final SAXParser parser;
+
+        // factories are not guaranteed to be thread safe, the parsers they create are
+        // not shared though
+        synchronized (FACTORY) {
+            parser = FACTORY.newSAXParser();
+        }
+
+        final ReportHandler handler = new ReportHandler();
+        parser.parse(xmlFile, handler);
+
+        if (handler.result == null) {
+            throw new SAXException("No testsuite element found in " + xmlFile);
+        }
+
+        handler.uniqueNames.forEach(handler.result::addFailedTestCase);
+        handler.signatures.forEach(handler.result::setFailureSignature);
+        handler.failedTestCaseTimes.forEach(handler.result::setTestCaseTime);
+
+        if (handler.result.getTime() <= 0) {
+            handler.result.setTime(handler.testCaseTime);
         }
-        uniqueNames.forEach(result::addFailedTestCase);
-        return result;
+
+        return handler.result;
     }
 
     public String getLegalIdentifierName(String name) {
@@ -62,4 +75,122 @@ public class SurefireReportParser {
         }
         return name;
     }
+
+    /**
+     * @return the time in seconds, or 0 if it's missing or malformed
+     */
+    static double parseTime(String time) {
+        if (time == null || time.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            // older surefire versions format the time with grouping separators, e.g. 1,234.5
+            return Math.max(0, Double.parseDouble(time.replace(",", "")));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static SAXParserFactory createFactory() {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IllegalStateException("Secure XML processing is not supported", e);
+        }
+
+        return factory;
+    }
+
+    private class ReportHandler extends DefaultHandler {
+        private final TreeSet<String> uniqueNames = new TreeSet<>();
+        // signature of the first failure of each failed test case
+        private final Map<String, FailureSignature> signatures = new HashMap<>();
+        // time of each failed test case, summed up over test cases sharing a name
+        private final Map<String, Double> failedTestCaseTimes = new HashMap<>();
+        private final StringBuilder stackTrace = new StringBuilder();
+        private RunResult result;
+        // sum of all test case times, used if the testsuite does not have a time
+        private double testCaseTime;
+
+        // depth of the current element, the testsuite element is at depth 1
+        private int depth;
+        private String currentTestCase;
+        private double currentTestCaseTime;
+        private boolean currentTestCaseFailed;
+        // attributes of the current test case's first failure, the stack trace is captured while
+        // inside it
+        private String failureType;
+        private String failureMessage;
+        private boolean inFailure;
+
+        @Override
+        public void startElement(
+                String uri, String localName, String qName, Attributes attributes) {
+            depth++;
+
+            if (result == null && "testsuite".equals(qName)) {
+                result = new RunResult(valueOf(attributes.getValue("name")));
+                result.setTime(parseTime(attributes.getValue("time")));
+            } else if ("testcase".equals(qName)) {
+                currentTestCase = valueOf(attributes.getValue("name"));
+                currentTestCaseTime = parseTime(attributes.getValue("time"));
+                testCaseTime += currentTestCaseTime;
+                currentTestCaseFailed = false;
+            } else if (currentTestCase != null && isDirectChildOfTestCase()
+                    && FAILURE_TAGS.contains(qName)) {
+                if (!currentTestCaseFailed) {
+                    failureType = valueOf(attributes.getValue("type"));
+                    failureMessage = valueOf(attributes.getValue("message"));
+                    stackTrace.setLength(0);
+                    inFailure = true;
+                }
+
+                currentTestCaseFailed = true;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if ("testcase".equals(qName) && currentTestCase != null) {
+                if (currentTestCaseFailed) {
+                    final String name = getLegalIdentifierName(currentTestCase);
+                    uniqueNames.add(name);
+                    // e.g. parameterized test cases share their name
+                    signatures.putIfAbsent(name,
+                            FailureSignature.of(failureType, failureMessage, stackTrace));
+                    failedTestCaseTimes.merge(name, currentTestCaseTime, Double::sum);
+                }
+
+                currentTestCase = null;
+            } else if (inFailure && isDirectChildOfTestCase()) {
+                inFailure = false;
+            }
+
+            depth--;
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            // captured output is skipped without ever being copied out of the parser's buffer,
+            // and stack traces are copied up to a bound
+            if (inFailure) {
+                final int remaining = MAX_STACK_TRACE_CHARS - stackTrace.length();
+                if (remaining > 0) {
+                    stackTrace.append(ch, start, Math.min(length, remaining));
+                }
+            }
+        }
+
+        private boolean isDirectChildOfTestCase() {
+            // testsuite > testcase > failure
+            return depth == 3;
+        }
+
+        private String valueOf(String attribute) {
+            return attribute == null ? "" : attribute;
+        }
+    }
 }
@@ -0,0 +1,276 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Selects the test classes affected by changes since the last green build, by looking at the
+ * compiled classes only.
+ *
+ * <p>A fingerprint of every file in the main and test output directories is stored after a green
+ * build. The next build reads the constant pools of all classes to build a dependency graph, and
+ * selects the test classes which transitively depend on a class that was added, changed or
+ * removed since. A change to any other file (e.g. a resource) selects all test classes, since
+ * there is no telling which tests depend on it.
+ *
+ * <p>The same goes for the inputs of the build outside of the output directories, i.e. the poms
+ * and the rest of the test classpath: dependency jars and the output directories of upstream
+ * modules. Each of them is fingerprinted as a whole, and a change to any of them selects all
+ * test classes.
+ */
+public class TestImpactAnalyzer {
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String MAIN_PREFIX = "main:";
+    private static final String TEST_PREFIX = "test:";
+    private static final String INPUT_PREFIX = "input:";
+    // fingerprint of an input which does not exist
+    private static final String MISSING = "missing";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File outputDirectory;
+    private final File testOutputDirectory;
+    private final Collection<File> inputs;
+    private final File fingerprintFile;
+
+    private Map<String, String> currentFingerprints;
+
+    /**
+     * @param inputs files and directories the classes are built and tested with, other than the
+     *        output directories, e.g. the pom and the jars on the test classpath
+     */
+    public TestImpactAnalyzer(
+            File outputDirectory,
+            File testOutputDirectory,
+            Collection<File> inputs,
+            File fingerprintFile) {
+        this.outputDirectory = outputDirectory;
+        this.testOutputDirectory = testOutputDirectory;
+        this.inputs = inputs;
+        this.fingerprintFile = fingerprintFile;
+    }
+
+    /**
+     * @param testClasses resolved test classes
+     * @return the test classes affected by changes, all of them if there are no fingerprints yet
+     */
+    public Set<String> selectAffected(Collection<String> testClasses) throws IOException {
+        currentFingerprints = new TreeMap<>();
+        final Map<String, File> classFiles = new HashMap<>();
+        scan(outputDirectory, MAIN_PREFIX, classFiles);
+        scan(testOutputDirectory, TEST_PREFIX, classFiles);
+        for (File input : inputs) {
+            currentFingerprints.put(INPUT_PREFIX + input.getAbsolutePath(), fingerprint(input));
+        }
+
+        final Map<String, String> storedFingerprints = loadFingerprints();
+        final Set<String> changedClasses = new HashSet<>();
+
+        if (storedFingerprints.isEmpty()) {
+            return new TreeSet<>(testClasses);
+        }
+
+        final Set<String> keys = new HashSet<>(storedFingerprints.keySet());
+        keys.addAll(currentFingerprints.keySet());
+
+        for (String key : keys) {
+            if (currentFingerprints.getOrDefault(key, "").equals(storedFingerprints.get(key))) {
+                continue;
+            }
+
+            if (!isClassKey(key)) {
+                return new TreeSet<>(testClasses);
+            }
+
+            changedClasses.add(toClassName(key.substring(key.indexOf(':') + 1)));
+        }
+
+        final Set<String> affected = getDependents(changedClasses, classFiles);
+        return testClasses.stream().filter(affected::contains)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    /**
+     * Stores the fingerprints taken by the last {@link #selectAffected(Collection)}, so that the
+     * next build only selects the tests affected by changes made after this one.
+     */
+    public void saveFingerprints() throws IOException {
+        if (currentFingerprints == null) {
+            return;
+        }
+
+        Files.createDirectories(fingerprintFile.getAbsoluteFile().getParentFile().toPath());
+        File tmp = new File(fingerprintFile.getPath() + ".tmp");
+
+        try (BufferedWriter writer =
+                Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : currentFingerprints.entrySet()) {
+                writer.write(entry.getKey() + "=" + entry.getValue());
+                writer.newLine();
+            }
+        }
+
+        Files.move(tmp.toPath(), fingerprintFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the given classes, plus all classes which transitively depend on them
+     */
+    private static Set<String> getDependents(
+            Set<String> classes, Map<String, File> classFiles) throws IOException {
+        final Map<String, Set<String>> dependents = new HashMap<>();
+
+        for (Map.Entry<String, File> entry : classFiles.entrySet()) {
+            try (InputStream in = Files.newInputStream(entry.getValue().toPath())) {
+                for (String dependency : ClassDependencyReader.read(in)) {
+                    dependents.computeIfAbsent(dependency, d -> new HashSet<>())
+                            .add(entry.getKey());
+                }
+            } catch (IOException e) {
+                throw new IOException("Failed to read class file " + entry.getValue(), e);
+            }
+        }
+
+        final Set<String> affected = new HashSet<>(classes);
+        final Deque<String> queue = new ArrayDeque<>(classes);
+
+        while (!queue.isEmpty()) {
+            for (String dependent : dependents.getOrDefault(queue.poll(), new HashSet<>())) {
+                if (affected.add(dependent)) {
+                    queue.add(dependent);
+                }
+            }
+        }
+
+        return affected;
+    }
+
+    private void scan(File directory, String keyPrefix, Map<String, File> classFiles)
+            throws IOException {
+        if (!directory.isDirectory()) {
+            return;
+        }
+
+        final Path root = directory.toPath();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                final String relativePath = root.relativize(path).toString()
+                        .replace(File.separatorChar, '/');
+                final byte[] content = Files.readAllBytes(path);
+
+                currentFingerprints.put(keyPrefix + relativePath, fingerprint(content));
+
+                if (relativePath.endsWith(CLASS_SUFFIX)) {
+                    classFiles.put(toClassName(relativePath), path.toFile());
+                }
+            }
+        }
+    }
+
+    private Map<String, String> loadFingerprints() throws IOException {
+        final Map<String, String> fingerprints = new HashMap<>();
+
+        if (!fingerprintFile.isFile()) {
+            return fingerprints;
+        }
+
+        try (BufferedReader reader =
+                Files.newBufferedReader(fingerprintFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                int separator = line.lastIndexOf('=');
+
+                if (separator > 0) {
+                    fingerprints.put(line.substring(0, separator), line.substring(separator + 1));
+                }
+            }
+        }
+
+        return fingerprints;
+    }
+
+    private static boolean isClassKey(String key) {
+        return (key.startsWith(MAIN_PREFIX) || key.startsWith(TEST_PREFIX))
+                && key.endsWith(CLASS_SUFFIX);
+    }
+
+    private static String toClassName(String relativePath) {
+        return relativePath.substring(0, relativePath.length() - CLASS_SUFFIX.length())
+                .replace('/', '.');
+    }
+
+    private static String fingerprint(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+
+        return Long.toHexString(crc.getValue()) + ":" + content.length;
+    }
+
+    /**
+     * @return the fingerprint of a file, or of all files in a directory together with their
+     *         relative paths
+     */
+    private static String fingerprint(File input) throws IOException {
+        if (!input.exists()) {
+            return MISSING;
+        }
+
+        final CRC32 crc = new CRC32();
+        long length = 0;
+
+        if (input.isDirectory()) {
+            final Path root = input.toPath();
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile).sorted()
+                        ::iterator) {
+                    crc.update(root.relativize(path).toString().getBytes(StandardCharsets.UTF_8));
+                    length += update(crc, path);
+                }
+            }
+        } else {
+            length = update(crc, input.toPath());
+        }
+
+        return Long.toHexString(crc.getValue()) + ":" + length;
+    }
+
+    /**
+     * Streams the file into the checksum, since jars may be large.
+     *
+     * @return the length of the file
+     */
+    private static long update(CRC32 crc, Path path) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long length = 0;
+
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+                length += read;
+            }
+        }
+
+        return length;
+    }
+}
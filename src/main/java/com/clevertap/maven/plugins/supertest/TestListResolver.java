@@ -1,6 +1,17 @@
 package com.clevertap.maven.plugins.supertest;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -9,24 +20,165 @@ import java.util.stream.Collectors;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.surefire.util.DirectoryScanner;
 
+/**
+ * Resolves the test classes in the test classes directory, like surefire does.
+ *
+ * <p>If a cache file is given, the resolved classes are kept in it, together with a key made of
+ * the filters and a fingerprint of the directory (file count and latest modification time). As
+ * long as the key matches, the cached classes are reused instead of matching every class file
+ * against the filters again.
+ *
+ * <p>With more than one scan thread, the directory is scanned by a {@link ParallelClassScanner}
+ * instead of surefire's scanner, with the same result.
+ */
 public class TestListResolver {
     private static final String[] DEFAULT_INCLUDES = new String[] {
             "**/Test*.java", "**/*Test.java", "**/*Tests.java", "**/*TestCase.java"};
     private static final String[] DEFAULT_EXCLUDES = new String[] {"**/*$*"};
 
-    private final DirectoryScanner scanner;
+    private final File testClassDir;
+    private final List<String> includeList;
+    private final List<String> excludeList;
+    private final File cacheFile;
+    private final int scanThreads;
+    private final org.apache.maven.surefire.testset.TestListResolver filter;
 
     public TestListResolver(
             List<String> includes, List<String> excludes, String test, String testClassDir)
             throws MojoFailureException {
-        scanner = new DirectoryScanner(
-                new File(testClassDir),
-                new org.apache.maven.surefire.testset.TestListResolver(
-                        getIncludeList(test, includes), getExcludeList(test, excludes)));
+        this(includes, excludes, test, testClassDir, null, 1);
+    }
+
+    /**
+     * @param cacheFile file the resolved classes are cached in, or null; it must not be within
+     *         the test classes directory
+     * @param scanThreads number of threads scanning the directory, 1 scans it with surefire's
+     *         scanner
+     */
+    public TestListResolver(
+            List<String> includes,
+            List<String> excludes,
+            String test,
+            String testClassDir,
+            File cacheFile,
+            int scanThreads)
+            throws MojoFailureException {
+        this.testClassDir = new File(testClassDir);
+        this.includeList = getIncludeList(test, includes);
+        this.excludeList = getExcludeList(test, excludes);
+        this.cacheFile = cacheFile;
+        this.scanThreads = scanThreads;
+        filter = new org.apache.maven.surefire.testset.TestListResolver(includeList, excludeList);
     }
 
     public List<String> scanDirectories() {
-        return scanner.scan().getClasses();
+        if (cacheFile == null || !testClassDir.isDirectory()) {
+            return scan();
+        }
+
+        String key;
+        try {
+            key = getCacheKey();
+            final List<String> cached = readCache(key);
+            if (cached != null) {
+                return cached;
+            }
+        } catch (IOException e) {
+            // the cache is an optimization only
+            return scan();
+        }
+
+        final List<String> classes = scan();
+        try {
+            writeCache(key, classes);
+        } catch (IOException e) {
+            // the next scan will try again
+        }
+
+        return classes;
+    }
+
+    private List<String> scan() {
+        if (scanThreads > 1) {
+            return new ParallelClassScanner(testClassDir, filter, scanThreads).scan();
+        }
+
+        return new DirectoryScanner(testClassDir, filter).scan().getClasses();
+    }
+
+    /**
+     * @return a hash of the filters and the fingerprint of the test classes directory
+     */
+    String getCacheKey() throws IOException {
+        final long[] fingerprint = new long[2];
+
+        Files.walkFileTree(testClassDir.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                // a deleted file only changes the modification time of its directory
+                fingerprint[1] = Math.max(fingerprint[1], attrs.lastModifiedTime().toMillis());
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                fingerprint[0]++;
+                fingerprint[1] = Math.max(fingerprint[1], attrs.lastModifiedTime().toMillis());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        final String filters = "includes=" + String.join(",", includeList)
+                + "\nexcludes=" + String.join(",", excludeList);
+
+        return sha256(filters) + " files=" + fingerprint[0] + " mtime=" + fingerprint[1];
+    }
+
+    private List<String> readCache(String key) throws IOException {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+
+        final List<String> lines = Files.readAllLines(cacheFile.toPath(), StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(key)) {
+            return null;
+        }
+
+        return new ArrayList<>(lines.subList(1, lines.size()));
+    }
+
+    private void writeCache(String key, List<String> classes) throws IOException {
+        Files.createDirectories(cacheFile.getAbsoluteFile().getParentFile().toPath());
+        final File tmp = new File(cacheFile.getPath() + ".tmp");
+
+        try (BufferedWriter writer =
+                Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(key);
+            writer.newLine();
+            for (String className : classes) {
+                writer.write(className);
+                writer.newLine();
+            }
+        }
+
+        Files.move(tmp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String sha256(String value) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM supports SHA-256
+            throw new IllegalStateException(e);
+        }
     }
 
     private List<String> getIncludeList(String test, List<String> includes)
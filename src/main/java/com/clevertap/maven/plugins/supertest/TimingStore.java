@@ -0,0 +1,97 @@
+package com.clevertap.maven.plugins.supertest;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Local store of per-class test durations, as recorded by surefire.
+ *
+ * <p>The store is a plain text file with one {@code className=millis} line per class. Durations
+ * of classes which are not run again are kept, so that a partial run does not erase history.
+ */
+public class TimingStore {
+    private final File file;
+    private final Map<String, Long> durations = new TreeMap<>();
+
+    public TimingStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the durations from disk, if the store exists.
+     */
+    public TimingStore load() throws IOException {
+        durations.clear();
+
+        if (!file.isFile()) {
+            return this;
+        }
+
+        try (BufferedReader reader =
+                Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                int separator = line.lastIndexOf('=');
+
+                if (line.startsWith("#") || separator <= 0) {
+                    continue;
+                }
+
+                try {
+                    durations.put(line.substring(0, separator),
+                            Long.parseLong(line.substring(separator + 1).trim()));
+                } catch (NumberFormatException e) {
+                    // ignore the malformed line, the duration will be recorded again
+                }
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Records the durations of the given results, replacing earlier ones of the same classes.
+     */
+    public void update(Collection<RunResult> results) {
+        for (RunResult result : results) {
+            durations.put(result.getClassName(), Math.round(result.getTime() * 1000));
+        }
+    }
+
+    /**
+     * @return durations in milliseconds, keyed by class name
+     */
+    public Map<String, Long> getDurations() {
+        return Collections.unmodifiableMap(durations);
+    }
+
+    public void save() throws IOException {
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        File tmp = new File(file.getPath() + ".tmp");
+
+        try (BufferedWriter writer =
+                Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("# supertest class durations in milliseconds");
+            writer.newLine();
+
+            for (Map.Entry<String, Long> entry : durations.entrySet()) {
+                writer.write(entry.getKey() + "=" + entry.getValue());
+                writer.newLine();
+            }
+        }
+
+        // concurrent builds should never see a partially written store
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
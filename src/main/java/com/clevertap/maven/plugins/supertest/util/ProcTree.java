@@ -0,0 +1,161 @@
+package com.clevertap.maven.plugins.supertest.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the process tree from a Linux proc file system in a single pass over
+ * {@code <root>/<pid>/stat}, without spawning any processes.
+ */
+public class ProcTree implements ProcessTable {
+    private final Path procRoot;
+
+    /**
+     * @param procRoot mount point of the proc file system, usually {@code /proc}
+     */
+    public ProcTree(Path procRoot) {
+        this.procRoot = procRoot;
+    }
+
+    public boolean isAvailable() {
+        return Files.isDirectory(procRoot);
+    }
+
+    /**
+     * Gets the process ids of all leaves in the process tree of the provided pid.
+     */
+    public List<Long> getLeaves(long pid) throws IOException {
+        return findLeaves(readChildren(), pid);
+    }
+
+    /**
+     * @param children child pids, keyed by the pid of their parent
+     * @return the pids of all leaves in the process tree of the pid
+     */
+    static List<Long> findLeaves(Map<Long, List<Long>> children, long pid) {
+        final List<Long> leaves = new ArrayList<>();
+        final Deque<Long> queue =
+                new ArrayDeque<>(children.getOrDefault(pid, Collections.emptyList()));
+
+        while (!queue.isEmpty()) {
+            final long descendant = queue.poll();
+            final List<Long> descendantChildren = children.get(descendant);
+
+            if (descendantChildren == null) {
+                leaves.add(descendant);
+            } else {
+                queue.addAll(descendantChildren);
+            }
+        }
+
+        return leaves;
+    }
+
+    @Override
+    public Map<Long, List<Long>> readChildren(long pid) throws IOException {
+        return readChildren();
+    }
+
+    /**
+     * Reads the NUL separated arguments in {@code <root>/<pid>/cmdline}.
+     */
+    @Override
+    public List<String> readCommandLine(long pid) {
+        final byte[] content;
+        try {
+            content = Files.readAllBytes(procRoot.resolve(pid + "/cmdline"));
+        } catch (IOException e) {
+            // the process exited, or belongs to another user on a hardened system
+            return Collections.emptyList();
+        }
+
+        final List<String> commandLine = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == 0) {
+                commandLine.add(new String(content, start, i - start, StandardCharsets.UTF_8));
+                start = i + 1;
+            }
+        }
+        if (start < content.length) {
+            commandLine.add(
+                    new String(content, start, content.length - start, StandardCharsets.UTF_8));
+        }
+
+        return commandLine;
+    }
+
+    /**
+     * @return child pids of all processes, keyed by the pid of their parent
+     */
+    Map<Long, List<Long>> readChildren() throws IOException {
+        final Map<Long, List<Long>> children = new HashMap<>();
+
+        try (DirectoryStream<Path> processes = Files.newDirectoryStream(procRoot)) {
+            for (Path process : processes) {
+                final String name = process.getFileName().toString();
+                if (!isPid(name)) {
+                    continue;
+                }
+
+                final long parent = readParentPid(process.resolve("stat"));
+                if (parent >= 0) {
+                    children.computeIfAbsent(parent, p -> new ArrayList<>())
+                            .add(Long.parseLong(name));
+                }
+            }
+        }
+
+        return children;
+    }
+
+    /**
+     * @return the parent pid, or -1 if the process is gone or its stat is unreadable
+     */
+    static long readParentPid(Path stat) {
+        final String content;
+        try {
+            content = new String(Files.readAllBytes(stat), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            // the process exited while the tree was being read
+            return -1;
+        }
+
+        // pid (comm) state ppid ...; comm may contain spaces and parentheses itself
+        final int commEnd = content.lastIndexOf(')');
+        if (commEnd < 0) {
+            return -1;
+        }
+
+        final String[] fields = content.substring(commEnd + 1).trim().split("\\s+");
+        try {
+            return fields.length > 1 ? Long.parseLong(fields[1]) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isPid(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            if (!Character.isDigit(name.charAt(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
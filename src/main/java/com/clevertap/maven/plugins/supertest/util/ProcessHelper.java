@@ -3,21 +3,49 @@ package com.clevertap.maven.plugins.supertest.util;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.lang.reflect.Field;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class ProcessHelper {
     private final Runtime runtime;
+    private final ProcessTable processTable;
 
     public ProcessHelper() {
-        this(Runtime.getRuntime());
+        this.runtime = Runtime.getRuntime();
+        this.processTable = selectProcessTable(new ProcTree(Paths.get("/proc")));
     }
 
     ProcessHelper(Runtime runtime) {
         this.runtime = runtime;
+        this.processTable = new PgrepProcessTable();
+    }
+
+    public ProcessHelper(Runtime runtime, ProcessTable processTable) {
+        this.runtime = runtime;
+        this.processTable = processTable;
+    }
+
+    /**
+     * Selects how the process tree is read: on Java 9+ through ProcessHandle, otherwise on Linux
+     * from /proc in a single pass, elsewhere with pgrep for every process in the tree.
+     */
+    private ProcessTable selectProcessTable(ProcTree procTree) {
+        final ProcessTable jvmProcessTable = ProcessSupport.getProcessTable();
+        if (jvmProcessTable != null) {
+            return jvmProcessTable;
+        }
+
+        return procTree.isAvailable() ? procTree : new PgrepProcessTable();
     }
 
     /**
@@ -25,33 +53,26 @@ public class ProcessHelper {
      *
      * @return the pid found or -1 in case of an error on unsupported OS
      */
-    @SuppressWarnings("java:S3011")
     public long getPid(Process process) {
-        // java 8 does not have a handy util for getting pid, that's why reflection is needed
-        // (since java 9, process management is much better)
-        long pid = -1;
+        return OSUtil.isUnix() ? ProcessSupport.getPid(process) : -1;
+    }
 
+    /**
+     * @return the pid of this JVM, or -1 if it cannot be determined
+     */
+    public long getCurrentPid() {
+        // pid@hostname on all common JVMs
+        final String name = ManagementFactory.getRuntimeMXBean().getName();
         try {
-            if (isUnixProcess(process)) {
-                Field field = process.getClass().getDeclaredField("pid");
-                field.setAccessible(true);
-
-                try {
-                    pid = field.getLong(process);
-                } finally {
-                    field.setAccessible(false);
-                }
-            }
-        } catch (Exception e) {
-            pid = -1;
+            return Long.parseLong(name.substring(0, name.indexOf('@')));
+        } catch (RuntimeException e) {
+            return -1;
         }
-
-        return pid;
     }
 
-    @SuppressWarnings({"java:S1872"})
     public boolean isUnixProcess(Process process) {
-        return process.getClass().getName().equals("java.lang.UNIXProcess");
+        // java.lang.UNIXProcess on Java 8, java.lang.ProcessImpl since Java 9
+        return getPid(process) > 0;
     }
 
     public Process sendSIGINT(Process process) throws IOException {
@@ -70,6 +91,29 @@ public class ProcessHelper {
         return runtime.exec("kill " + pid);
     }
 
+    /**
+     * Sends SIGTERM to all given processes, with a single kill command if the JVM cannot do it
+     * by itself.
+     */
+    public void terminate(List<Long> pids) throws IOException {
+        if (!ProcessSupport.terminate(pids)) {
+            sendSIGTERM(pids);
+        }
+    }
+
+    /**
+     * Sends SIGTERM to all given processes with a single kill command.
+     */
+    public Process sendSIGTERM(List<Long> pids) throws IOException {
+        final String[] command = new String[pids.size() + 1];
+        command[0] = "kill";
+        for (int i = 0; i < pids.size(); i++) {
+            command[i + 1] = String.valueOf(pids.get(i));
+        }
+
+        return runtime.exec(command);
+    }
+
     // depends on the presence of pgrep command
     public List<Long> getChildren(long pid) {
         if (!OSUtil.isUnix()) {
@@ -85,20 +129,80 @@ public class ProcessHelper {
      * Gets the process ids of all leaves in the process tree of the provided pid.
      */
     public List<Long> getLeaves(long pid) {
-        List<Long> leaves = new ArrayList<>();
-        List<Long> children = getChildren(pid);
+        try {
+            return ProcTree.findLeaves(processTable.readChildren(pid), pid);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        for (long child : children) {
-            List<Long> childLeaves = getLeaves(child);
+    /**
+     * Gets the process ids of all descendants of the provided pid, parents before their children.
+     */
+    public List<Long> getDescendants(long pid) {
+        final Map<Long, List<Long>> children;
+        try {
+            children = processTable.readChildren(pid);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        final List<Long> descendants = new ArrayList<>();
+        final Deque<Long> queue =
+                new ArrayDeque<>(children.getOrDefault(pid, Collections.emptyList()));
+        while (!queue.isEmpty()) {
+            final long descendant = queue.poll();
+            descendants.add(descendant);
+            queue.addAll(children.getOrDefault(descendant, Collections.emptyList()));
+        }
+
+        return descendants;
+    }
 
-            if (childLeaves.isEmpty()) {
-                leaves.add(child);
-            } else {
-                leaves.addAll(childLeaves);
+    /**
+     * @return the command line of the process, the executable first; empty if the process is
+     *         gone
+     */
+    public List<String> getCommandLine(long pid) {
+        try {
+            return processTable.readCommandLine(pid);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the process tree with pgrep for every process in it, and command lines with ps.
+     */
+    private class PgrepProcessTable implements ProcessTable {
+        @Override
+        public Map<Long, List<Long>> readChildren(long pid) {
+            final Map<Long, List<Long>> children = new HashMap<>();
+            final Deque<Long> queue = new ArrayDeque<>();
+            queue.add(pid);
+
+            while (!queue.isEmpty()) {
+                final long parent = queue.poll();
+                final List<Long> parentChildren = getChildren(parent);
+
+                if (!parentChildren.isEmpty()) {
+                    children.put(parent, parentChildren);
+                    queue.addAll(parentChildren);
+                }
             }
+
+            return children;
         }
 
-        return leaves;
+        @Override
+        public List<String> readCommandLine(long pid) {
+            // arguments containing spaces cannot be told apart, which is good enough for a
+            // fallback
+            final String commandLine = runCommand("ps -ww -o args= -p " + pid).trim();
+            return commandLine.isEmpty()
+                    ? Collections.emptyList()
+                    : Arrays.asList(commandLine.split("\\s+"));
+        }
     }
 
     private String runCommand(String command) {
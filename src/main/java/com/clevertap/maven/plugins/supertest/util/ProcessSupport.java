@@ -0,0 +1,61 @@
+package com.clevertap.maven.plugins.supertest.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Process management which depends on the Java version. This is the Java 8 variant, a Java 9+
+ * variant based on {@code ProcessHandle} is part of the multi-release jar.
+ */
+final class ProcessSupport {
+
+    private ProcessSupport() {
+        // prevents instance creation
+    }
+
+    /**
+     * @return the pid of the process, or -1 if it cannot be determined
+     */
+    @SuppressWarnings("java:S3011")
+    static long getPid(Process process) {
+        try {
+            // Process.pid() exists since Java 9, e.g. when this variant runs from the classes
+            // directory rather than the multi-release jar
+            Method pid = Process.class.getMethod("pid");
+            return (Long) pid.invoke(process);
+        } catch (Exception e) {
+            // Java 8, fall through
+        }
+
+        // on Java 8, the pid is only available from a private field of java.lang.UNIXProcess
+        try {
+            Field field = process.getClass().getDeclaredField("pid");
+            field.setAccessible(true);
+
+            try {
+                return field.getLong(process);
+            } finally {
+                field.setAccessible(false);
+            }
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the JVM's own view of the processes, or null if it has none
+     */
+    static ProcessTable getProcessTable() {
+        return null;
+    }
+
+    /**
+     * Asks the given processes to terminate, with SIGTERM on Unix.
+     *
+     * @return false if the JVM cannot terminate processes by pid
+     */
+    static boolean terminate(List<Long> pids) {
+        return false;
+    }
+}
@@ -0,0 +1,24 @@
+package com.clevertap.maven.plugins.supertest.util;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A view of the processes running on the machine, read through the JVM, the proc file system or
+ * pgrep, depending on what's available.
+ */
+public interface ProcessTable {
+
+    /**
+     * @return child pids, keyed by the pid of their parent; covers at least the process tree of
+     *         the pid
+     */
+    Map<Long, List<Long>> readChildren(long pid) throws IOException;
+
+    /**
+     * @return the command line of the process, the executable first; empty if the process is
+     *         gone or its command line cannot be read
+     */
+    List<String> readCommandLine(long pid) throws IOException;
+}
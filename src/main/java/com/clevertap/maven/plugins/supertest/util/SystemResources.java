@@ -0,0 +1,177 @@
+package com.clevertap.maven.plugins.supertest.util;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Reads the resources available to this JVM: the CPU quota and memory limit of its cgroup (v1 or
+ * v2), the load average and the free memory of the machine.
+ *
+ * <p>Every getter reads the current values, none of them fails; values which cannot be read are
+ * reported as unknown.
+ */
+public class SystemResources {
+    // cgroup v1 reports "no limit" as a huge page-aligned number rather than a marker
+    private static final long UNLIMITED = 1L << 60;
+
+    private final Path procRoot;
+    private final Path cgroupRoot;
+
+    public SystemResources() {
+        this(Paths.get("/proc"), Paths.get("/sys/fs/cgroup"));
+    }
+
+    /**
+     * @param procRoot mount point of the proc file system, usually {@code /proc}
+     * @param cgroupRoot mount point of the cgroup file system, usually {@code /sys/fs/cgroup}
+     */
+    public SystemResources(Path procRoot, Path cgroupRoot) {
+        this.procRoot = procRoot;
+        this.cgroupRoot = cgroupRoot;
+    }
+
+    /**
+     * @return the number of CPUs this JVM may use, limited by the cgroup CPU quota
+     */
+    public double getCpuLimit() {
+        final int processors = getMachineCpus();
+        final double quota = isCgroupV2() ? readCpuMaxQuota() : readCfsQuota();
+
+        return quota > 0 ? Math.min(quota, processors) : processors;
+    }
+
+    /**
+     * @return the number of CPUs of the machine, which the load average is relative to
+     */
+    public int getMachineCpus() {
+        try {
+            int cpus = 0;
+            for (String line : Files.readAllLines(procRoot.resolve("stat"))) {
+                // "cpu" is the total, followed by "cpu0", "cpu1", ...
+                if (line.startsWith("cpu") && line.length() > 3
+                        && Character.isDigit(line.charAt(3))) {
+                    cpus++;
+                }
+            }
+
+            if (cpus > 0) {
+                return cpus;
+            }
+        } catch (IOException e) {
+            // not Linux
+        }
+
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return the cgroup memory limit in bytes, or -1 if there is none
+     */
+    public long getMemoryLimit() {
+        final long limit = isCgroupV2()
+                ? readLong(cgroupRoot.resolve("memory.max"))
+                : readLong(cgroupRoot.resolve("memory/memory.limit_in_bytes"));
+
+        return limit > 0 && limit < UNLIMITED ? limit : -1;
+    }
+
+    /**
+     * @return the memory in bytes a new process can use without swapping, or -1 if unknown
+     */
+    public long getAvailableMemory() {
+        long available = readMemAvailable();
+
+        final long limit = getMemoryLimit();
+        if (limit > 0) {
+            final long usage = isCgroupV2()
+                    ? readLong(cgroupRoot.resolve("memory.current"))
+                    : readLong(cgroupRoot.resolve("memory/memory.usage_in_bytes"));
+
+            if (usage >= 0) {
+                final long cgroupAvailable = Math.max(0, limit - usage);
+                available = available < 0 ? cgroupAvailable : Math.min(available, cgroupAvailable);
+            }
+        }
+
+        return available;
+    }
+
+    /**
+     * @return the load average of the last minute, or -1 if unknown
+     */
+    public double getLoadAverage() {
+        try {
+            final String loadavg =
+                    new String(Files.readAllBytes(procRoot.resolve("loadavg")),
+                            StandardCharsets.UTF_8).trim();
+            return Double.parseDouble(loadavg.split("\\s+")[0]);
+        } catch (IOException | RuntimeException e) {
+            final double load =
+                    ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+            return load >= 0 ? load : -1;
+        }
+    }
+
+    private boolean isCgroupV2() {
+        return Files.exists(cgroupRoot.resolve("cgroup.controllers"));
+    }
+
+    /**
+     * @return CPUs of the quota in cpu.max, e.g. 1.5 for "150000 100000", or -1 for "max"
+     */
+    private double readCpuMaxQuota() {
+        try {
+            final String[] fields =
+                    new String(Files.readAllBytes(cgroupRoot.resolve("cpu.max")),
+                            StandardCharsets.UTF_8).trim().split("\\s+");
+            if (fields.length < 2 || "max".equals(fields[0])) {
+                return -1;
+            }
+
+            return Double.parseDouble(fields[0]) / Double.parseDouble(fields[1]);
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private double readCfsQuota() {
+        final long quota = readLong(cgroupRoot.resolve("cpu/cpu.cfs_quota_us"));
+        final long period = readLong(cgroupRoot.resolve("cpu/cpu.cfs_period_us"));
+
+        return quota > 0 && period > 0 ? (double) quota / period : -1;
+    }
+
+    private long readMemAvailable() {
+        try {
+            final List<String> lines = Files.readAllLines(procRoot.resolve("meminfo"));
+            for (String line : lines) {
+                // MemAvailable:   12345678 kB
+                if (line.startsWith("MemAvailable:")) {
+                    final String[] fields = line.split("\\s+");
+                    return Long.parseLong(fields[1]) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // not Linux, or a kernel older than 3.14
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the number in the file, or -1 if it is missing or not a number, e.g. "max"
+     */
+    private static long readLong(Path file) {
+        try {
+            return Long.parseLong(
+                    new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+}
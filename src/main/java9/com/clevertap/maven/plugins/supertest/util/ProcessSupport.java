@@ -0,0 +1,90 @@
+package com.clevertap.maven.plugins.supertest.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process management which depends on the Java version. This is the Java 9+ variant, based on
+ * {@link ProcessHandle}, which needs neither reflection nor external processes.
+ */
+final class ProcessSupport {
+
+    private ProcessSupport() {
+        // prevents instance creation
+    }
+
+    /**
+     * @return the pid of the process, or -1 if it cannot be determined
+     */
+    static long getPid(Process process) {
+        try {
+            return process.pid();
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the JVM's own view of the processes, or null if it has none
+     */
+    static ProcessTable getProcessTable() {
+        return new ProcessTable() {
+            @Override
+            public Map<Long, List<Long>> readChildren(long pid) {
+                return ProcessSupport.readChildren(pid);
+            }
+
+            @Override
+            public List<String> readCommandLine(long pid) {
+                return ProcessSupport.readCommandLine(pid);
+            }
+        };
+    }
+
+    /**
+     * @return child pids within the process tree of the pid, keyed by the pid of their parent;
+     *         empty if the process is gone
+     */
+    static Map<Long, List<Long>> readChildren(long pid) {
+        final Map<Long, List<Long>> children = new HashMap<>();
+
+        ProcessHandle.of(pid).ifPresent(handle -> handle.descendants().forEach(descendant ->
+                descendant.parent().ifPresent(parent -> children
+                        .computeIfAbsent(parent.pid(), p -> new ArrayList<>())
+                        .add(descendant.pid()))));
+
+        return children;
+    }
+
+    /**
+     * @return the command line of the process, empty if the process is gone or the JVM cannot
+     *         read it
+     */
+    static List<String> readCommandLine(long pid) {
+        final List<String> commandLine = new ArrayList<>();
+
+        ProcessHandle.of(pid).map(ProcessHandle::info).ifPresent(info -> {
+            info.command().ifPresent(commandLine::add);
+            info.arguments().ifPresent(arguments -> commandLine.addAll(Arrays.asList(arguments)));
+        });
+
+        return commandLine;
+    }
+
+    /**
+     * Asks the given processes to terminate, with SIGTERM on Unix.
+     *
+     * @return false if the JVM cannot terminate processes by pid
+     */
+    static boolean terminate(List<Long> pids) {
+        for (long pid : pids) {
+            // processes which already exited are simply skipped
+            ProcessHandle.of(pid).ifPresent(ProcessHandle::destroy);
+        }
+
+        return true;
+    }
+}
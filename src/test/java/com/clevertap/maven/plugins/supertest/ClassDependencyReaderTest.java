@@ -0,0 +1,54 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class ClassDependencyReaderTest {
+
+    @SuppressWarnings("unused")
+    static class Holder {
+        private TimingStore[] stores;
+        private List<ShardPlanner> planners;
+    }
+
+    @Test
+    void testReadsReferencedClasses() throws IOException {
+        Set<String> dependencies = read(TimingStore.class);
+
+        assertTrue(dependencies.contains(RunResult.class.getName()));
+        assertTrue(dependencies.contains("java.io.File"));
+        assertFalse(dependencies.contains(TimingStore.class.getName()));
+    }
+
+    @Test
+    void testReadsArrayAndGenericTypes() throws IOException {
+        Set<String> dependencies = read(Holder.class);
+
+        assertTrue(dependencies.contains(TimingStore.class.getName()));
+        assertTrue(dependencies.contains(ShardPlanner.class.getName()));
+        assertTrue(dependencies.contains("java.util.List"));
+    }
+
+    @Test
+    void testRejectsNonClassFiles() {
+        assertThrows(IOException.class, () -> ClassDependencyReader.read(
+                new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8})));
+    }
+
+    private static Set<String> read(Class<?> clazz) throws IOException {
+        String resource = clazz.getName().substring(clazz.getName().lastIndexOf('.') + 1)
+                + ".class";
+
+        try (InputStream in = clazz.getResourceAsStream(resource)) {
+            return ClassDependencyReader.read(in);
+        }
+    }
+}
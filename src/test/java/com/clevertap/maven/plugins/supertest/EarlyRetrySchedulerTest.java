@@ -0,0 +1,77 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EarlyRetrySchedulerTest {
+    private static final String FAILURE_LINE = "[ERROR] Tests run: 2, Failures: 0, Errors: 2, "
+            + "Skipped: 0, Time elapsed: 0.353 s <<< FAILURE! - in ";
+
+    @TempDir
+    Path reportsDirectory;
+
+    private final ExecutorService slots = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        slots.shutdownNow();
+    }
+
+    @Test
+    void testRetriesFailedClassesOnce() throws Exception {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("BarTest.xml")) {
+            Files.copy(in, reportsDirectory.resolve("TEST-com.example.BarTest.xml"));
+        }
+
+        List<String> retries = Collections.synchronizedList(new ArrayList<>());
+        EarlyRetryScheduler scheduler = new EarlyRetryScheduler(slots,
+                reportsDirectory.toFile(),
+                (className, failedTestCases) ->
+                        retries.add(className + "#" + String.join("+", failedTestCases)),
+                new SystemStreamLog());
+
+        scheduler.onOutputLine("[INFO] Running com.example.BarTest");
+        scheduler.onOutputLine(FAILURE_LINE + "com.example.BarTest");
+        // e.g. the output of the retry itself
+        scheduler.onOutputLine(FAILURE_LINE + "com.example.BarTest");
+        scheduler.onOutputLine("[INFO] Tests run: 1, Failures: 0, Errors: 0, Skipped: 0, "
+                + "Time elapsed: 0.1 s - in com.example.PassingTest");
+
+        Map<String, RunResult> firstRunResults = scheduler.awaitRetries();
+
+        assertEquals(Collections.singletonList("com.example.BarTest#barTest1+barTest2"), retries);
+        assertEquals(Arrays.asList("barTest1", "barTest2"),
+                firstRunResults.get("com.example.BarTest").getFailedTestCases());
+    }
+
+    @Test
+    void testRetriesWholeClassWithoutReport() throws InterruptedException, IOException {
+        List<String> retries = Collections.synchronizedList(new ArrayList<>());
+        EarlyRetryScheduler scheduler = new EarlyRetryScheduler(slots,
+                reportsDirectory.toFile(),
+                (className, failedTestCases) ->
+                        retries.add(className + "#" + String.join("+", failedTestCases)),
+                new SystemStreamLog());
+
+        scheduler.onOutputLine(FAILURE_LINE + "com.example.FooTest");
+
+        assertTrue(scheduler.awaitRetries().isEmpty());
+        assertEquals(Collections.singletonList("com.example.FooTest#"), retries);
+    }
+}
@@ -0,0 +1,108 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ExecutionTimelineTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testAppendsOneLinePerAttempt() throws IOException {
+        File file = dir.resolve("timeline.jsonl").toFile();
+        ExecutionTimeline timeline = new ExecutionTimeline(file, "group:artifact", 1000);
+
+        timeline.recordProcess("supertest run#1 shard#1/2", "mvn test -Dtest=A", 1000, 5000, 0,
+                ExecutionTimeline.TERMINATION_EXIT);
+        timeline.recordProcess("supertest run#1 shard#2/2", "mvn test -Dtest=B", 1000, 9000, 1,
+                ExecutionTimeline.TERMINATION_SIGTERM);
+        timeline.recordProcess("supertest retry run#1", "mvn test -Dtest=B#b*", 9500, 9900, 0,
+                ExecutionTimeline.TERMINATION_EXIT);
+
+        RunResult a = new RunResult("com.example.A");
+        a.setTime(3.5);
+        RunResult b = new RunResult("com.example.B");
+        b.setTime(0.25);
+        b.addFailedTestCase("b");
+        b.addFailedTestCase("say \"hi\"");
+
+        timeline.appendAttempt("supertest run#1", "shell", 1000, 9000, 1,
+                Arrays.asList("com.example.A", "com.example.B"), Arrays.asList(a, b), 12);
+
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertEquals(1, lines.size());
+        assertEquals("{\"project\":\"group:artifact\",\"buildStart\":1000,"
+                + "\"attempt\":\"supertest run#1\",\"backend\":\"shell\",\"start\":1000,"
+                + "\"end\":9000,\"durationMillis\":8000,\"exitCode\":1,\"processes\":["
+                + "{\"descriptor\":\"supertest run#1 shard#1/2\",\"command\":\"mvn test -Dtest=A\","
+                + "\"start\":1000,\"end\":5000,\"exitCode\":0,\"termination\":\"exit\"},"
+                + "{\"descriptor\":\"supertest run#1 shard#2/2\",\"command\":\"mvn test -Dtest=B\","
+                + "\"start\":1000,\"end\":9000,\"exitCode\":1,\"termination\":\"sigterm\"}],"
+                + "\"selected\":[\"com.example.A\",\"com.example.B\"],"
+                + "\"failures\":[\"com.example.B#b\",\"com.example.B#say \\\"hi\\\"\"],"
+                + "\"reportParseMillis\":12,"
+                + "\"classDurationsMillis\":{\"com.example.A\":3500,\"com.example.B\":250}}",
+                lines.get(0));
+
+        // processes of other attempts are left for them
+        timeline.appendAttempt("supertest retry run#1", "shell", 9500, 9900, 0,
+                Collections.singletonList("com.example.B#b*"), Collections.emptyList(), 1);
+
+        lines = Files.readAllLines(file.toPath());
+        assertEquals(2, lines.size());
+        assertEquals("{\"project\":\"group:artifact\",\"buildStart\":1000,"
+                + "\"attempt\":\"supertest retry run#1\",\"backend\":\"shell\",\"start\":9500,"
+                + "\"end\":9900,\"durationMillis\":400,\"exitCode\":0,\"processes\":["
+                + "{\"descriptor\":\"supertest retry run#1\",\"command\":\"mvn test -Dtest=B#b*\","
+                + "\"start\":9500,\"end\":9900,\"exitCode\":0,\"termination\":\"exit\"}],"
+                + "\"selected\":[\"com.example.B#b*\"],\"failures\":[],"
+                + "\"reportParseMillis\":1,\"classDurationsMillis\":{}}",
+                lines.get(1));
+    }
+
+    @Test
+    void testAppendsCompileOnItsOwn() throws IOException {
+        File file = dir.resolve("timeline.jsonl").toFile();
+        ExecutionTimeline timeline = new ExecutionTimeline(file, "group:artifact", 1000);
+
+        timeline.recordProcess("supertest compile", "mvn test-compile", 1000, 4000, 0,
+                ExecutionTimeline.TERMINATION_EXIT);
+        timeline.recordProcess("supertest run#1", "mvn test", 4000, 9000, 0,
+                ExecutionTimeline.TERMINATION_EXIT);
+        timeline.appendCompile("supertest compile");
+        timeline.appendAttempt("supertest run#1", "shell", 4000, 9000, 0,
+                Collections.emptyList(), Collections.emptyList(), 1);
+
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertEquals(2, lines.size());
+        assertEquals("{\"project\":\"group:artifact\",\"buildStart\":1000,"
+                + "\"compile\":\"supertest compile\",\"processes\":["
+                + "{\"descriptor\":\"supertest compile\",\"command\":\"mvn test-compile\","
+                + "\"start\":1000,\"end\":4000,\"exitCode\":0,\"termination\":\"exit\"}]}",
+                lines.get(0));
+        assertEquals("{\"project\":\"group:artifact\",\"buildStart\":1000,"
+                + "\"attempt\":\"supertest run#1\",\"backend\":\"shell\",\"start\":4000,"
+                + "\"end\":9000,\"durationMillis\":5000,\"exitCode\":0,\"processes\":["
+                + "{\"descriptor\":\"supertest run#1\",\"command\":\"mvn test\","
+                + "\"start\":4000,\"end\":9000,\"exitCode\":0,\"termination\":\"exit\"}],"
+                + "\"selected\":[],\"failures\":[],"
+                + "\"reportParseMillis\":1,\"classDurationsMillis\":{}}",
+                lines.get(1));
+    }
+
+    @Test
+    void testQuote() {
+        StringBuilder json = new StringBuilder();
+        ExecutionTimeline.quote(json, "a\\b\n\t\u0001");
+        assertEquals("\"a\\\\b\\n\\t\\u0001\"", json.toString());
+    }
+}
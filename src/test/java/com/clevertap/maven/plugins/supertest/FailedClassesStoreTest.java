@@ -0,0 +1,34 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FailedClassesStoreTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testSaveAndLoad() throws IOException {
+        File file = dir.resolve("nested").resolve("failed-classes.txt").toFile();
+        FailedClassesStore store = new FailedClassesStore(file);
+        assertTrue(store.load().isEmpty());
+
+        store.save(Arrays.asList("com.example.FooTest", "com.example.BarTest"));
+        assertEquals(
+                new TreeSet<>(Arrays.asList("com.example.BarTest", "com.example.FooTest")),
+                store.load());
+
+        // a green build clears the store
+        store.save(Collections.emptyList());
+        assertTrue(store.load().isEmpty());
+    }
+}
@@ -0,0 +1,80 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+class FailureSignatureTest {
+    private static String trace(String firstLine, String... frames) {
+        final StringBuilder trace = new StringBuilder(firstLine);
+        for (String frame : frames) {
+            trace.append("\n\tat ").append(frame);
+        }
+        return trace.toString();
+    }
+
+    @Test
+    void testNormalizesValuesWhichDifferBetweenRuns() {
+        final FailureSignature first = FailureSignature.of("java.net.ConnectException",
+                "Connection refused to localhost:54321 after 1503 ms",
+                trace("java.net.ConnectException: Connection refused",
+                        "com.example.Db.connect(Db.java:10)",
+                        "com.example.FooTest$$Lambda$123/0x0000000800c0b000.run(Unknown Source)",
+                        "jdk.internal.reflect.GeneratedMethodAccessor12.invoke(Unknown Source)"));
+        final FailureSignature second = FailureSignature.of("java.net.ConnectException",
+                "Connection refused to localhost:40001 after 998 ms",
+                trace("java.net.ConnectException: Connection refused",
+                        "com.example.Db.connect(Db.java:10)",
+                        "com.example.FooTest$$Lambda$77/0x0000000800c0a440.run(Unknown Source)",
+                        "jdk.internal.reflect.GeneratedMethodAccessor3.invoke(Unknown Source)"));
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals("java.net.ConnectException: Connection refused to localhost:# after # ms",
+                first.getCause());
+    }
+
+    @Test
+    void testDiffersByTypeMessageAndTopFrames() {
+        final FailureSignature signature = FailureSignature.of("java.lang.AssertionError",
+                "expected true", trace("java.lang.AssertionError: expected true",
+                        "org.junit.Assert.fail(Assert.java:89)",
+                        "com.example.FooTest.a(FooTest.java:20)"));
+
+        assertNotEquals(signature, FailureSignature.of("java.lang.IllegalStateException",
+                "expected true", trace("java.lang.IllegalStateException: expected true",
+                        "org.junit.Assert.fail(Assert.java:89)",
+                        "com.example.FooTest.a(FooTest.java:20)")));
+        assertNotEquals(signature, FailureSignature.of("java.lang.AssertionError",
+                "expected false", trace("java.lang.AssertionError: expected false",
+                        "org.junit.Assert.fail(Assert.java:89)",
+                        "com.example.FooTest.a(FooTest.java:20)")));
+        assertNotEquals(signature, FailureSignature.of("java.lang.AssertionError",
+                "expected true", trace("java.lang.AssertionError: expected true",
+                        "org.junit.Assert.fail(Assert.java:89)",
+                        "com.example.FooTest.b(FooTest.java:30)")));
+    }
+
+    @Test
+    void testOnlyTopFramesAreCompared() {
+        final FailureSignature signature = FailureSignature.of("java.lang.AssertionError", "",
+                trace("java.lang.AssertionError", "a.A.a(A.java:1)", "a.B.b(B.java:2)",
+                        "a.C.c(C.java:3)", "a.D.d(D.java:4)"));
+
+        assertEquals(signature, FailureSignature.of("java.lang.AssertionError", "",
+                trace("java.lang.AssertionError", "a.A.a(A.java:1)", "a.B.b(B.java:2)",
+                        "a.C.c(C.java:3)", "a.E.e(E.java:5)")));
+        assertEquals("java.lang.AssertionError:  at a.A.a(A.java:1) < a.B.b(B.java:2)"
+                + " < a.C.c(C.java:3)", signature.toString());
+    }
+
+    @Test
+    void testTypeAndMessageFallBackToTheStackTrace() {
+        final FailureSignature signature = FailureSignature.of("", "",
+                trace("java.lang.NullPointerException: name is null",
+                        "com.example.Foo.bar(Foo.java:7)"));
+
+        assertEquals("java.lang.NullPointerException: name is null", signature.getCause());
+    }
+}
@@ -0,0 +1,72 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FailureSignatureTrackerTest {
+    private static RunResult result(String className, String... testCasesAndMessages) {
+        final RunResult result = new RunResult(className);
+        for (int i = 0; i < testCasesAndMessages.length; i += 2) {
+            result.addFailedTestCase(testCasesAndMessages[i]);
+            result.setFailureSignature(testCasesAndMessages[i],
+                    FailureSignature.of("java.lang.AssertionError", testCasesAndMessages[i + 1],
+                            "java.lang.AssertionError\n\tat " + className + "."
+                                    + testCasesAndMessages[i] + "(Test.java:1)"));
+        }
+        return result;
+    }
+
+    @Test
+    void testReportsRerunTestsWhichFailedTheSameWay() {
+        final FailureSignatureTracker tracker = new FailureSignatureTracker();
+        assertEquals(Collections.emptySet(), tracker.update(
+                Collections.singletonList(result("a.FooTest", "a", "boom", "b", "boom",
+                        "c", "boom")),
+                Collections.emptySet()));
+
+        // c was not rerun, so its unchanged report does not tell anything
+        assertEquals(Collections.singleton("a.FooTest#a"), tracker.update(
+                Collections.singletonList(result("a.FooTest", "a", "boom", "b", "bang",
+                        "c", "boom")),
+                new HashSet<>(Arrays.asList("a.FooTest#a", "a.FooTest#b"))));
+
+        // b failed differently on its first rerun, the same as then on its second
+        assertEquals(Collections.singleton("a.FooTest#b"), tracker.update(
+                Collections.singletonList(result("a.FooTest", "b", "bang")),
+                Collections.singleton("a.FooTest#b")));
+        assertEquals("java.lang.AssertionError: bang at a.FooTest.b(Test.java:1)",
+                tracker.getSignature("a.FooTest#b").toString());
+    }
+
+    @Test
+    void testTestsWithoutSignatureAreNeverReproduced() {
+        final RunResult result = new RunResult("a.FooTest");
+        result.addFailedTestCase("a");
+
+        final FailureSignatureTracker tracker = new FailureSignatureTracker();
+        tracker.update(Collections.singletonList(result), Collections.emptySet());
+        assertEquals(Collections.emptySet(), tracker.update(Collections.singletonList(result),
+                Collections.singleton("a.FooTest#a")));
+        assertNull(tracker.getSignature("a.FooTest#a"));
+    }
+
+    @Test
+    void testFindDominantCause() {
+        final List<RunResult> results = Arrays.asList(
+                result("a.FooTest", "a", "Connection refused to :5432", "b",
+                        "Connection refused to :5433"),
+                result("a.BarTest", "a", "Connection refused to :5434", "b", "expected 1"));
+
+        assertEquals("java.lang.AssertionError: Connection refused to :#",
+                FailureSignatureTracker.findDominantCause(results, 0.5, 4));
+        assertNull(FailureSignatureTracker.findDominantCause(results, 0.75, 4));
+        assertNull(FailureSignatureTracker.findDominantCause(results, 0.5, 5));
+        assertNull(FailureSignatureTracker.findDominantCause(Collections.emptyList(), 0.5, 0));
+    }
+}
@@ -0,0 +1,113 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FlakyTestHistoryTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testAppendAndLoad() throws IOException {
+        File file = dir.resolve("history").resolve("flaky-history.tsv").toFile();
+        FlakyTestHistory history = new FlakyTestHistory(file, 0.5, 3);
+
+        for (int build = 0; build < 3; build++) {
+            Map<String, Boolean> outcomes = new TreeMap<>();
+            outcomes.put("com.example.FooTest#flaky", build != 1);
+            outcomes.put("com.example.FooTest#broken", false);
+            outcomes.put("com.example.BarTest", true);
+            history.append(build, outcomes);
+        }
+
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertEquals(9, lines.size());
+        assertEquals("0\tcom.example.BarTest\tP", lines.get(0));
+
+        FlakyTestHistory loaded = new FlakyTestHistory(file, 0.5, 3).load();
+        assertTrue(loaded.isKnownFlaky("com.example.FooTest#flaky"));
+        assertFalse(loaded.isKnownDeterministic("com.example.FooTest#flaky"));
+        assertEquals(2.0 / 3, loaded.getPassOnRetryRate("com.example.FooTest#flaky"), 0.0001);
+
+        assertTrue(loaded.isKnownDeterministic("com.example.FooTest#broken"));
+        assertFalse(loaded.isKnownFlaky("com.example.FooTest#broken"));
+
+        assertTrue(loaded.isKnownFlaky("com.example.BarTest"));
+
+        assertTrue(loaded.hasOutcomes("com.example.FooTest#broken"));
+        assertFalse(loaded.hasOutcomes("com.example.FooTest#new"));
+    }
+
+    @Test
+    void testTestsAreNotClassifiedWithoutEnoughSamples() throws IOException {
+        FlakyTestHistory history =
+                new FlakyTestHistory(dir.resolve("flaky-history.tsv").toFile(), 0.5, 3);
+        history.append(1, Collections.singletonMap("com.example.FooTest#a", false));
+        history.append(2, Collections.singletonMap("com.example.FooTest#b", true));
+
+        assertFalse(history.isKnownDeterministic("com.example.FooTest#a"));
+        assertFalse(history.isKnownFlaky("com.example.FooTest#b"));
+        assertFalse(history.isKnownFlaky("com.example.Unknown"));
+    }
+
+    @Test
+    void testWithheldTestsAreRetriedAgainPeriodically() throws IOException {
+        File file = dir.resolve("flaky-history.tsv").toFile();
+        FlakyTestHistory history = new FlakyTestHistory(file, 0.5, 3);
+        String test = "com.example.FooTest#a";
+        for (int build = 0; build < 3; build++) {
+            history.append(build, Collections.singletonMap(test, false));
+        }
+        assertTrue(history.isKnownDeterministic(test));
+
+        // withheld in 3 builds, then retried once more
+        for (int build = 3; build < 6; build++) {
+            assertTrue(history.isKnownDeterministic(test));
+            history.append(build, Collections.emptyMap(), Collections.singleton(test));
+        }
+        assertFalse(history.isKnownDeterministic(test));
+        assertEquals(0, history.getPassOnRetryRate(test), 0.0001);
+
+        // still failing, so it's withheld again
+        history.append(6, Collections.singletonMap(test, false));
+        assertTrue(history.isKnownDeterministic(test));
+
+        // got fixed, or became flaky
+        for (int build = 7; build < 10; build++) {
+            history.append(build, Collections.emptyMap(), Collections.singleton(test));
+        }
+        history.append(10, Collections.singletonMap(test, true));
+        FlakyTestHistory loaded = new FlakyTestHistory(file, 0.5, 3).load();
+        assertFalse(loaded.isKnownDeterministic(test));
+        assertEquals(0.2, loaded.getPassOnRetryRate(test), 0.0001);
+        assertEquals(11, Files.readAllLines(file.toPath()).size());
+    }
+
+    @Test
+    void testOnlyRecentOutcomesAreConsidered() throws IOException {
+        File file = dir.resolve("flaky-history.tsv").toFile();
+        StringBuilder lines = new StringBuilder("garbage\n");
+        for (int build = 0; build < 50; build++) {
+            // used to be flaky, but fails deterministically for the last 20 builds
+            lines.append(build).append("\tcom.example.FooTest#a\t")
+                    .append(build < 30 ? 'P' : 'F').append('\n');
+        }
+        Files.write(file.toPath(), lines.toString().getBytes(StandardCharsets.UTF_8));
+
+        FlakyTestHistory history = new FlakyTestHistory(file, 0.5, 3).load();
+        assertTrue(history.isKnownDeterministic("com.example.FooTest#a"));
+    }
+}
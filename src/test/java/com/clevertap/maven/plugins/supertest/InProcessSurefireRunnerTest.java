@@ -0,0 +1,35 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.junit.jupiter.api.Test;
+
+class InProcessSurefireRunnerTest {
+
+    @Test
+    void testCreateConfiguration() {
+        Xpp3Dom project = new Xpp3Dom("configuration");
+        project.addChild(dom("reuseForks", "false"));
+        project.addChild(dom("notAParameter", "x"));
+
+        Xpp3Dom defaults = new Xpp3Dom("configuration");
+        defaults.addChild(dom("reuseForks", "${reuseForks}"));
+        defaults.addChild(dom("test", "${test}"));
+
+        Xpp3Dom configuration = InProcessSurefireRunner.createConfiguration(project, defaults);
+        InProcessSurefireRunner.setChild(configuration, "test", "com.example.FooTest#foo*");
+
+        assertEquals("false", configuration.getChild("reuseForks").getValue());
+        assertEquals("com.example.FooTest#foo*", configuration.getChild("test").getValue());
+        assertNull(configuration.getChild("notAParameter"));
+        assertEquals(2, configuration.getChildCount());
+    }
+
+    private static Xpp3Dom dom(String name, String value) {
+        Xpp3Dom dom = new Xpp3Dom(name);
+        dom.setValue(value);
+        return dom;
+    }
+}
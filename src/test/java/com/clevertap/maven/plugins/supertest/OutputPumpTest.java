@@ -0,0 +1,116 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.clevertap.maven.plugins.supertest.OutputPump.Verbosity;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OutputPumpTest {
+    private static final String OUTPUT = "[INFO] Running com.example.FooTest\n"
+            + "[ERROR] Tests run: 2, Failures: 1, Errors: 0, Skipped: 0, Time elapsed: 0.1 s "
+            + "<<< FAILURE! - in com.example.FooTest\r\n"
+            + "[INFO] some test output\n"
+            + "[ERROR] Tests run: 2, Failures: 1, Errors: 0, Skipped: 0\n"
+            + "[INFO] BUILD FAILURE";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testPumpsAllOutput() throws IOException {
+        File logFile = dir.resolve("logs").resolve("run.log").toFile();
+        List<String> lines = new ArrayList<>();
+        List<List<String>> logged = new ArrayList<>();
+        AtomicLong lastOutputTime = new AtomicLong();
+
+        // a small buffer splits lines across reads
+        new OutputPump(new ByteArrayInputStream(OUTPUT.getBytes(Charset.defaultCharset())),
+                "run#1", logFile, Verbosity.ALL, lines::add, logged::add, lastOutputTime, 16)
+                .run();
+
+        assertEquals(Arrays.asList(OUTPUT.replace("\r", "").split("\n")), lines);
+        List<String> loggedLines = new ArrayList<>();
+        logged.forEach(loggedLines::addAll);
+        assertEquals(lines.size(), loggedLines.size());
+        assertEquals("run#1: [INFO] Running com.example.FooTest", loggedLines.get(0));
+        assertArrayEquals(OUTPUT.getBytes(Charset.defaultCharset()),
+                Files.readAllBytes(logFile.toPath()));
+        assertTrue(lastOutputTime.get() > 0);
+    }
+
+    @Test
+    void testForwardsByVerbosity() throws IOException {
+        assertEquals(Arrays.asList(
+                "run#1: [ERROR] Tests run: 2, Failures: 1, Errors: 0, Skipped: 0, "
+                        + "Time elapsed: 0.1 s <<< FAILURE! - in com.example.FooTest",
+                "run#1: [ERROR] Tests run: 2, Failures: 1, Errors: 0, Skipped: 0",
+                "run#1: [INFO] BUILD FAILURE"), pump(Verbosity.FAILURES));
+
+        assertEquals(Arrays.asList(
+                "run#1: [ERROR] Tests run: 2, Failures: 1, Errors: 0, Skipped: 0",
+                "run#1: [INFO] BUILD FAILURE"), pump(Verbosity.SUMMARY));
+    }
+
+    @Test
+    void testSplitsOverlongLines() throws IOException {
+        List<String> lines = new ArrayList<>();
+        String output = repeat("x", 10_000) + "\nend";
+
+        new OutputPump(new ByteArrayInputStream(output.getBytes(StandardCharsets.US_ASCII)),
+                "run#1", null, Verbosity.SUMMARY, lines::add, logged -> { }, new AtomicLong(),
+                1000).run();
+
+        assertEquals(Arrays.asList(repeat("x", OutputPump.MAX_LINE_LENGTH),
+                repeat("x", OutputPump.MAX_LINE_LENGTH),
+                repeat("x", 10_000 - 2 * OutputPump.MAX_LINE_LENGTH), "end"), lines);
+    }
+
+    @Test
+    void testSplitsOverlongLinesBetweenCharacters() throws IOException {
+        assumeTrue(Charset.defaultCharset().equals(StandardCharsets.UTF_8));
+        List<String> lines = new ArrayList<>();
+        // 3 bytes each, the limit falls within one
+        String output = repeat("\u20ac", 2000);
+
+        new OutputPump(new ByteArrayInputStream(output.getBytes(StandardCharsets.UTF_8)),
+                "run#1", null, Verbosity.SUMMARY, lines::add, logged -> { }, new AtomicLong())
+                .run();
+
+        assertEquals(output, String.join("", lines));
+        assertEquals(OutputPump.MAX_LINE_LENGTH / 3, lines.get(0).length());
+    }
+
+    @Test
+    void testParseVerbosity() {
+        assertEquals(Verbosity.FAILURES, Verbosity.of(" failures"));
+    }
+
+    private static List<String> pump(Verbosity verbosity) throws IOException {
+        List<String> logged = new ArrayList<>();
+        new OutputPump(new ByteArrayInputStream(OUTPUT.getBytes(Charset.defaultCharset())),
+                "run#1", null, verbosity, line -> { }, logged::addAll, new AtomicLong())
+                .run();
+
+        return logged;
+    }
+
+    private static String repeat(String value, int times) {
+        return String.join("", Collections.nCopies(times, value));
+    }
+}
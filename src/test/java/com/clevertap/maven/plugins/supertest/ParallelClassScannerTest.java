@@ -0,0 +1,105 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.apache.maven.plugin.surefire.util.DirectoryScanner;
+import org.apache.maven.surefire.testset.TestListResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that the parallel scanner finds the same classes as surefire's scanner.
+ */
+class ParallelClassScannerTest {
+    private static final List<String> DEFAULT_INCLUDES = Arrays.asList(
+            "**/Test*.java", "**/*Test.java", "**/*Tests.java", "**/*TestCase.java");
+    private static final List<String> DEFAULT_EXCLUDES = Collections.singletonList("**/*$*");
+
+    @TempDir
+    Path testClassDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        final Random random = new Random(42);
+        final String[] suffixes = {"Test", "Tests", "TestCase", "Helper", "Test$1", "Test$Inner"};
+
+        for (int i = 0; i < 500; i++) {
+            Path dir = testClassDir;
+            for (int depth = random.nextInt(5); depth > 0; depth--) {
+                dir = dir.resolve("pkg" + random.nextInt(4));
+            }
+            Files.createDirectories(dir);
+
+            final String name = (random.nextInt(10) == 0 ? "Test" : "Generated")
+                    + i + suffixes[random.nextInt(suffixes.length)];
+            Files.createFile(dir.resolve(name + ".class"));
+
+            if (i % 50 == 0) {
+                Files.createFile(dir.resolve(name + ".java"));
+            }
+        }
+
+        // edge cases of surefire's scanner
+        Files.createFile(testClassDir.resolve("UpperCaseTest.CLASS"));
+        Files.createFile(testClassDir.resolve(".class"));
+        Files.createDirectories(testClassDir.resolve("DirectoryTest.class"));
+        Files.createFile(testClassDir.resolve("DirectoryTest.class/InDirectoryTest.class"));
+        Files.createDirectories(testClassDir.resolve("empty/nested"));
+    }
+
+    @Test
+    void testDefaultFilters() {
+        assertSameClasses(new TestListResolver(DEFAULT_INCLUDES, DEFAULT_EXCLUDES));
+    }
+
+    @Test
+    void testCustomFilters() {
+        assertSameClasses(new TestListResolver(
+                Arrays.asList("pkg0/**/*Test", "**/pkg3/*"), Collections.singletonList("**/*9*")));
+    }
+
+    @Test
+    void testRegexFilters() {
+        assertSameClasses(new TestListResolver(
+                Collections.singletonList("%regex[.*pkg1.*Tests?.class]"), DEFAULT_EXCLUDES));
+    }
+
+    @Test
+    void testTestParameter() {
+        assertSameClasses(new TestListResolver(
+                Arrays.asList("Generated1*Test", "pkg2/**/Test*", "UpperCaseTest"),
+                Collections.emptyList()));
+    }
+
+    @Test
+    void testMissingDirectory() {
+        TestListResolver filter = new TestListResolver(DEFAULT_INCLUDES, DEFAULT_EXCLUDES);
+        assertEquals(Collections.emptyList(), new ParallelClassScanner(
+                testClassDir.resolve("missing").toFile(), filter, 4).scan());
+    }
+
+    private void assertSameClasses(TestListResolver filter) {
+        final Set<String> expected = new HashSet<>(
+                new DirectoryScanner(testClassDir.toFile(), filter).scan().getClasses());
+        assertFalse(expected.isEmpty());
+
+        for (int parallelism : new int[] {1, 2, 8}) {
+            final List<String> actual =
+                    new ParallelClassScanner(testClassDir.toFile(), filter, parallelism).scan();
+
+            assertEquals(expected, new HashSet<>(actual));
+            assertEquals(expected.size(), actual.size());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ProgressTrackerTest {
+
+    @Test
+    void testCountsAndEstimatesFromRecordedDurations() {
+        Map<String, Long> durations = new HashMap<>();
+        durations.put("com.example.ATest", 10_000L);
+        durations.put("com.example.BTest", 30_000L);
+
+        ProgressTracker tracker = new ProgressTracker("supertest run#1",
+                Arrays.asList("com.example.ATest", "com.example.BTest"), durations, 0);
+        assertEquals(-1, tracker.getRemainingMillis(1000));
+
+        tracker.onOutputLine("[ERROR] Tests run: 4, Failures: 1, Errors: 1, Skipped: 1, "
+                + "Time elapsed: 9 s <<< FAILURE! - in com.example.ATest");
+        // a rerun of the same class by another fork does not count twice
+        tracker.onOutputLine("[INFO] Tests run: 4, Failures: 0, Errors: 0, Skipped: 1, "
+                + "Time elapsed: 9 s - in com.example.ATest");
+        tracker.onOutputLine("[INFO] Running com.example.BTest");
+
+        assertEquals(1, tracker.getCompletedClasses());
+        assertEquals(4, tracker.getTestsRun());
+        assertEquals(2, tracker.getTestsFailed());
+        // 10s of recorded time took 5s, the remaining 30s are expected to take 15s
+        assertEquals(15_000, tracker.getRemainingMillis(5000));
+        assertEquals("supertest run#1 progress: 1/2 classes, 4 tests, 2 failed, 0.8 tests/s, "
+                        + "elapsed 5s, remaining ~15s",
+                tracker.getStatusLine(5000));
+        assertEquals("supertest run#1 summary: 1/2 classes completed, 4 tests (2 failed, "
+                        + "1 skipped) in 1m 5s, 0.1 tests/s",
+                tracker.getSummary(65_000));
+    }
+
+    @Test
+    void testEstimatesFromClassCountWithoutDurations() {
+        ProgressTracker tracker = new ProgressTracker("supertest retry run#1",
+                Arrays.asList("com.example.ATest", "com.example.BTest", "com.example.CTest"),
+                Collections.emptyMap(), 1000);
+
+        tracker.onOutputLine("[INFO] Tests run: 1, Failures: 0, Errors: 0, Skipped: 0, "
+                + "Time elapsed: 1 s - in com.example.ATest");
+
+        assertEquals(4000, tracker.getRemainingMillis(2000));
+    }
+
+    @Test
+    void testFormatDuration() {
+        assertEquals("0s", ProgressTracker.formatDuration(999));
+        assertEquals("2m 5s", ProgressTracker.formatDuration(125_000));
+        assertEquals("1h 0m 1s", ProgressTracker.formatDuration(3_601_000));
+    }
+}
@@ -0,0 +1,110 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.clevertap.maven.plugins.supertest.util.SystemResources;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ResourceGovernorTest {
+    private static final long MB = 1024 * 1024;
+
+    private final SystemResources resources = mock(SystemResources.class);
+
+    @BeforeEach
+    void setUp() {
+        when(resources.getCpuLimit()).thenReturn(4.0);
+        when(resources.getMachineCpus()).thenReturn(8);
+        when(resources.getMemoryLimit()).thenReturn(-1L);
+        when(resources.getLoadAverage()).thenReturn(1.0);
+        when(resources.getAvailableMemory()).thenReturn(8192 * MB);
+    }
+
+    @Test
+    void testCapacity() {
+        assertEquals(4, newGovernor().getCapacity());
+
+        when(resources.getMemoryLimit()).thenReturn(3072 * MB);
+        assertEquals(3, newGovernor().getCapacity());
+
+        when(resources.getCpuLimit()).thenReturn(0.5);
+        assertEquals(1, newGovernor().getCapacity());
+    }
+
+    @Test
+    void testDenialReasons() throws InterruptedException {
+        when(resources.getLoadAverage()).thenReturn(16.0);
+        when(resources.getAvailableMemory()).thenReturn(0L);
+        ResourceGovernor governor = newGovernor();
+
+        // the first process is always admitted
+        assertNull(governor.getDenialReason());
+        governor.acquire("first");
+
+        assertEquals("load average 16.00 and 1 starting of 8 CPUs", governor.getDenialReason());
+
+        when(resources.getLoadAverage()).thenReturn(2.0);
+        assertEquals("0 MB of memory available and 1 starting", governor.getDenialReason());
+
+        when(resources.getAvailableMemory()).thenReturn(-1L);
+        assertNull(governor.getDenialReason());
+
+        governor.acquire("second");
+        governor.acquire("third");
+        governor.acquire("fourth");
+        assertEquals("4/4 running", governor.getDenialReason());
+    }
+
+    @Test
+    void testCountsProcessesWhichJustStarted() throws InterruptedException {
+        // the readings do not change yet when processes are admitted back to back
+        when(resources.getMachineCpus()).thenReturn(3);
+        ResourceGovernor governor = newGovernor();
+
+        governor.acquire("first");
+        governor.acquire("second");
+        assertEquals("load average 1.00 and 2 starting of 3 CPUs", governor.getDenialReason());
+
+        governor.release("second");
+        assertNull(governor.getDenialReason());
+
+        when(resources.getAvailableMemory()).thenReturn(1536 * MB);
+        assertEquals("1536 MB of memory available and 1 starting", governor.getDenialReason());
+    }
+
+    @Test
+    void testWaitsForRelease() throws InterruptedException {
+        when(resources.getCpuLimit()).thenReturn(1.0);
+        ResourceGovernor governor = newGovernor();
+        governor.acquire("first");
+
+        CountDownLatch admitted = new CountDownLatch(1);
+        Thread waiting = new Thread(() -> {
+            try {
+                governor.acquire("second");
+                admitted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiting.start();
+
+        assertFalse(admitted.await(200, TimeUnit.MILLISECONDS));
+        governor.release("first");
+        assertTrue(admitted.await(5, TimeUnit.SECONDS));
+        assertEquals(1, governor.getRunning());
+        waiting.join();
+    }
+
+    private ResourceGovernor newGovernor() {
+        return new ResourceGovernor(resources, 1024 * MB, 50, new SystemStreamLog());
+    }
+}
@@ -0,0 +1,86 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class RetryBudgetTest {
+    @Test
+    void testSelectsMostLikelyToPassPerMillisecondFirst() {
+        final Map<String, Long> costs = new HashMap<>();
+        costs.put("a.SlowTest#flaky", 60_000L);
+        costs.put("a.FastTest#flaky", 1_000L);
+        costs.put("a.FastTest#broken", 1_000L);
+        costs.put("a.MediumTest#unknown", 20_000L);
+
+        final Map<String, Double> passProbabilities = new HashMap<>();
+        passProbabilities.put("a.SlowTest#flaky", 0.9);
+        passProbabilities.put("a.FastTest#flaky", 0.9);
+        passProbabilities.put("a.FastTest#broken", 0.0);
+
+        final RetryBudget budget = new RetryBudget(30_000, 0);
+        assertEquals(new HashSet<>(Arrays.asList("a.FastTest#flaky", "a.MediumTest#unknown",
+                        "a.FastTest#broken")),
+                budget.select(costs, test -> passProbabilities.getOrDefault(
+                        test, RetryBudget.UNKNOWN_PASS_PROBABILITY), 5_000));
+
+        // the slow test fits once the others are gone, if there is enough left
+        costs.keySet().retainAll(Collections.singleton("a.SlowTest#flaky"));
+        assertEquals(Collections.emptySet(), budget.select(costs, test -> 0.9, 5_000));
+        assertEquals(Collections.singleton("a.SlowTest#flaky"),
+                new RetryBudget(90_000, 0).select(costs, test -> 0.9, 5_000));
+    }
+
+    @Test
+    void testAccountsForTheOverheadOfTheLastRetry() {
+        final Map<String, Long> costs = new LinkedHashMap<>();
+        costs.put("a.FooTest#a", 10_000L);
+
+        final RetryBudget budget = new RetryBudget(60_000, 0);
+        assertEquals(Collections.singleton("a.FooTest#a"),
+                budget.select(costs, test -> 0.5, 0));
+
+        // Maven took 40s on top of the test
+        budget.recordRetry(50_000, 10_000);
+        assertEquals(10_000, budget.getRemainingMillis(50_000));
+        assertEquals(Collections.emptySet(), budget.select(costs, test -> 0.5, 50_000));
+    }
+
+    @Test
+    void testEstimateCosts() {
+        final RunResult foo = new RunResult("a.FooTest");
+        foo.setTime(12.5);
+        foo.addFailedTestCase("a");
+        foo.setTestCaseTime("a", 1.25);
+        foo.addFailedTestCase("");
+
+        final List<RunResult> results = Collections.singletonList(foo);
+        final Map<String, List<String>> failures = new HashMap<>();
+        failures.put("a.FooTest", Arrays.asList("a", ""));
+        failures.put("a.BarTest", Collections.singletonList("b"));
+
+        final Map<String, Long> durations = new HashMap<>();
+        durations.put("a.HungTest", 300_000L);
+        durations.put("a.FooTest", 12_000L);
+
+        final Map<String, Long> expected = new HashMap<>();
+        expected.put("a.FooTest#a", 1_250L);
+        expected.put("a.FooTest", 12_500L);
+        expected.put("a.BarTest#b", 0L);
+        // did not complete, the new one is estimated by the mean duration
+        expected.put("a.HungTest", 300_000L);
+        expected.put("a.NewTest", 156_000L);
+        assertEquals(expected, RetryBudget.estimateCosts(results, failures,
+                Arrays.asList("a.HungTest", "a.NewTest"), durations));
+        assertEquals(Collections.singletonMap("a.NewTest", 0L),
+                RetryBudget.estimateCosts(Collections.emptyList(), Collections.emptyMap(),
+                        Collections.singleton("a.NewTest"), Collections.emptyMap()));
+    }
+}
@@ -0,0 +1,134 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RunMetricsTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testWrite() throws IOException {
+        RunMetrics metrics = new RunMetrics("group:artifact");
+        metrics.addAttemptTime("supertest run#1", 62_500);
+        metrics.addAttemptTime("supertest early retry", 1_000);
+        metrics.addAttemptTime("supertest early retry", 2_000);
+        metrics.addAttemptTime("supertest retry run#1", 4_250);
+        metrics.addReportParseTime(120);
+        metrics.addReportParseTime(30);
+        metrics.addShutdownTime(10_000);
+        metrics.incrementNoActivityTimeouts();
+        metrics.setRetryOutcome(5, 3, 2);
+        metrics.setTestsOverRetryBudget(4);
+
+        File file = dir.resolve("textfile/supertest.prom").toFile();
+        metrics.write(file);
+
+        assertEquals("# TYPE supertest_attempt_duration_seconds gauge\n"
+                        + "# HELP supertest_attempt_duration_seconds Wall time of an attempt of "
+                        + "the last execution.\n"
+                        + "supertest_attempt_duration_seconds{module=\"group:artifact\","
+                        + "attempt=\"supertest run#1\"} 62.500\n"
+                        + "supertest_attempt_duration_seconds{module=\"group:artifact\","
+                        + "attempt=\"supertest early retry\"} 3.000\n"
+                        + "supertest_attempt_duration_seconds{module=\"group:artifact\","
+                        + "attempt=\"supertest retry run#1\"} 4.250\n"
+                        + "# TYPE supertest_tests_rerun gauge\n"
+                        + "# HELP supertest_tests_rerun Tests which were retried in the last "
+                        + "execution.\n"
+                        + "supertest_tests_rerun{module=\"group:artifact\"} 5\n"
+                        + "# TYPE supertest_tests_recovered gauge\n"
+                        + "# HELP supertest_tests_recovered Retried tests which passed "
+                        + "eventually in the last execution.\n"
+                        + "supertest_tests_recovered{module=\"group:artifact\"} 3\n"
+                        + "# TYPE supertest_tests_failed_permanently gauge\n"
+                        + "# HELP supertest_tests_failed_permanently Tests which still failed "
+                        + "after all retries of the last execution.\n"
+                        + "supertest_tests_failed_permanently{module=\"group:artifact\"} 2\n"
+                        + "# TYPE supertest_tests_over_retry_budget gauge\n"
+                        + "# HELP supertest_tests_over_retry_budget Failed tests which were not "
+                        + "retried since the retry time budget was used up in the last "
+                        + "execution.\n"
+                        + "supertest_tests_over_retry_budget{module=\"group:artifact\"} 4\n"
+                        + "# TYPE supertest_report_parse_seconds gauge\n"
+                        + "# HELP supertest_report_parse_seconds Time spent parsing surefire "
+                        + "reports in the last execution.\n"
+                        + "supertest_report_parse_seconds{module=\"group:artifact\"} 0.150\n"
+                        + "# TYPE supertest_process_shutdown_seconds gauge\n"
+                        + "# HELP supertest_process_shutdown_seconds Time spent shutting down "
+                        + "timed out Maven processes in the last execution.\n"
+                        + "supertest_process_shutdown_seconds{module=\"group:artifact\"} 10.000\n"
+                        + "# TYPE supertest_no_activity_timeouts gauge\n"
+                        + "# HELP supertest_no_activity_timeouts Maven processes which timed "
+                        + "out without output in the last execution.\n"
+                        + "supertest_no_activity_timeouts{module=\"group:artifact\"} 1\n"
+                        + "# EOF\n",
+                new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        // rewritten as a whole
+        metrics.setRetryOutcome(0, 0, 0);
+        metrics.write(file);
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertEquals(1, content.split("# EOF", -1).length - 1);
+    }
+
+    @Test
+    void testEveryFamilyIsTypedForTheTextfileCollector() {
+        RunMetrics metrics = new RunMetrics("group:artifact");
+        metrics.addAttemptTime("supertest run#1", 1_000);
+        metrics.incrementNoActivityTimeouts();
+
+        Map<String, String> types = parseTextFormat(metrics.toOpenMetrics());
+        assertEquals(8, types.size());
+        types.forEach((name, type) -> assertEquals("gauge", type, name));
+    }
+
+    /**
+     * Parses metrics like the Prometheus 0.0.4 text format parser node_exporter's textfile
+     * collector uses: a sample belongs to the family of exactly its name, a TYPE line must come
+     * before the family's samples, and families without samples are dropped.
+     *
+     * @return the type of each family with samples, "untyped" if it has no TYPE line
+     */
+    private static Map<String, String> parseTextFormat(String text) {
+        Map<String, String> declaredTypes = new HashMap<>();
+        Map<String, String> types = new LinkedHashMap<>();
+
+        for (String line : text.split("\n")) {
+            if (line.startsWith("# TYPE ")) {
+                String[] fields = line.split(" ");
+                assertEquals(4, fields.length, line);
+                assertFalse(types.containsKey(fields[2]), "TYPE after samples: " + line);
+                assertNull(declaredTypes.put(fields[2], fields[3]), "second TYPE: " + line);
+            } else if (!line.startsWith("#")) {
+                int nameEnd = line.indexOf('{');
+                String name = line.substring(0, nameEnd < 0 ? line.indexOf(' ') : nameEnd);
+                types.put(name, declaredTypes.getOrDefault(name, "untyped"));
+                Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+            }
+        }
+
+        return types;
+    }
+
+    @Test
+    void testEscapesLabelValues() {
+        RunMetrics metrics = new RunMetrics("a\"b\\c");
+        assertTrue(metrics.toOpenMetrics()
+                .contains("supertest_tests_rerun{module=\"a\\\"b\\\\c\"} 0\n"));
+    }
+}
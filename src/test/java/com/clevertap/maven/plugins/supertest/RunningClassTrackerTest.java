@@ -0,0 +1,30 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.jupiter.api.Test;
+
+class RunningClassTrackerTest {
+    @Test
+    void testTracksClassesWhichDidNotComplete() {
+        RunningClassTracker tracker = new RunningClassTracker();
+        tracker.onOutputLine("[INFO] Running com.example.FooTest");
+        tracker.onOutputLine("[INFO] Running com.example.BarTest");
+        tracker.onOutputLine("[INFO] Running com.example.HungTest");
+        tracker.onOutputLine("[INFO] Tests run: 2, Failures: 0, Errors: 0, Skipped: 0, "
+                + "Time elapsed: 0.1 s - in com.example.FooTest");
+        tracker.onOutputLine("[ERROR] Tests run: 1, Failures: 1, Errors: 0, Skipped: 0, "
+                + "Time elapsed: 0.1 s <<< FAILURE! - in com.example.BarTest");
+        tracker.onOutputLine("some output of HungTest");
+
+        assertEquals(Collections.singleton("com.example.HungTest"),
+                tracker.getRunningClasses());
+
+        tracker.remove(new HashSet<>(Arrays.asList("com.example.HungTest")));
+        assertTrue(tracker.getRunningClasses().isEmpty());
+    }
+}
@@ -0,0 +1,82 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class ShardPlannerTest {
+    private final ShardPlanner planner = new ShardPlanner();
+
+    @Test
+    void testPlanSplitsClassesIntoDisjointShards() {
+        Set<String> classes = new HashSet<>(Arrays.asList("A", "B", "C", "D", "E"));
+
+        List<List<String>> plan = planner.plan(classes, 2);
+
+        assertEquals(Arrays.asList(Arrays.asList("A", "C", "E"), Arrays.asList("B", "D")), plan);
+    }
+
+    @Test
+    void testPlanNeverCreatesEmptyShards() {
+        List<List<String>> plan = planner.plan(Arrays.asList("B", "A"), 8);
+
+        assertEquals(
+                Arrays.asList(Collections.singletonList("A"), Collections.singletonList("B")),
+                plan);
+    }
+
+    @Test
+    void testPlanWithSingleShard() {
+        List<List<String>> plan = planner.plan(Arrays.asList("B", "A"), 1);
+
+        assertEquals(Collections.singletonList(Arrays.asList("A", "B")), plan);
+    }
+
+    @Test
+    void testPlanBalancesByDuration() {
+        Map<String, Long> durations = new HashMap<>();
+        durations.put("Slow", 100_000L);
+        durations.put("Medium1", 50_000L);
+        durations.put("Medium2", 40_000L);
+        durations.put("Fast1", 10L);
+        durations.put("Fast2", 10L);
+
+        List<List<String>> plan = new ShardPlanner(durations).plan(durations.keySet(), 2);
+
+        // longest first, each to the lightest shard: the second shard stays below the 100s of
+        // the first one even after taking all classes but Slow
+        assertEquals(
+                Arrays.asList(
+                        Collections.singletonList("Slow"),
+                        Arrays.asList("Medium1", "Medium2", "Fast1", "Fast2")),
+                plan);
+    }
+
+    @Test
+    void testPlanSplitsClassesWithoutHistoryByCount() {
+        Map<String, Long> durations = new HashMap<>();
+        durations.put("Slow", 100_000L);
+
+        List<List<String>> plan = new ShardPlanner(durations)
+                .plan(Arrays.asList("Slow", "New1", "New2", "New3", "New4"), 2);
+
+        assertEquals(
+                Arrays.asList(
+                        Arrays.asList("Slow", "New1", "New3"),
+                        Arrays.asList("New2", "New4")),
+                plan);
+    }
+
+    @Test
+    void testPlanWithoutClasses() {
+        assertTrue(planner.plan(Collections.emptySet(), 4).isEmpty());
+    }
+}
@@ -1,24 +1,38 @@
 package com.clevertap.maven.plugins.supertest;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.xml.parsers.ParserConfigurationException;
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.maven.project.MavenProject;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
 import org.xml.sax.SAXException;
 
 class SuperTestMavenPluginTest {
@@ -84,6 +98,36 @@ class SuperTestMavenPluginTest {
         assertNull(rerunCommand);
     }
 
+    @Test
+    void testCreateRerunCommandIsIndependentOfResultOrder() {
+        SuperTestMavenPlugin plugin = new SuperTestMavenPlugin();
+        List<String> classNames = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            classNames.add("com.example.Test" + i);
+        }
+
+        String expected = null;
+        for (int attempt = 0; attempt < 5; attempt++) {
+            Collections.shuffle(classNames);
+
+            final Map<String, List<String>> classNameToTestCaseList = new LinkedHashMap<>();
+            for (String className : classNames) {
+                // every other class has a report with failures, the rest did not complete
+                if (Integer.parseInt(className.substring("com.example.Test".length())) % 2 == 0) {
+                    classNameToTestCaseList.put(className, Arrays.asList("a", "b"));
+                }
+            }
+
+            String rerunCommand = plugin.createRerunCommand(
+                    new LinkedHashSet<>(classNames), classNameToTestCaseList);
+
+            if (expected == null) {
+                expected = rerunCommand;
+            }
+            assertEquals(expected, rerunCommand);
+        }
+    }
+
     /**
      * Extracts test param from mvn test -Dtest=... and converts it to a set of test classes, where
      * each test class is represented as a pair of name + set of test methods to be run.
@@ -105,6 +149,324 @@ class SuperTestMavenPluginTest {
         }).collect(Collectors.toSet());
     }
 
+    @Test
+    void testCreateFirstRunCommandsWithoutShards() {
+        SuperTestMavenPlugin plugin = new SuperTestMavenPlugin();
+        plugin.mvnTestOpts = "-Dtest=Foo*";
+
+        Map<String, String> commands = plugin.createFirstRunCommands(
+                new HashSet<>(Arrays.asList("com.example.FooTest", "com.example.FooBarTest")),
+                false,
+                Collections.emptyMap(),
+                "artifact",
+                "group");
+
+        assertEquals(
+                Collections.singletonMap(
+                        "supertest run#1", "mvn test  -Dtest=Foo* -pl group:artifact"),
+                commands);
+    }
+
+    @Test
+    void testCreateFirstRunCommandsWithShards() {
+        SuperTestMavenPlugin plugin = new SuperTestMavenPlugin();
+        plugin.mvnTestOpts = "-Dtest=Foo* -fae";
+        plugin.shards = 2;
+
+        Map<String, String> commands = plugin.createFirstRunCommands(
+                new HashSet<>(Arrays.asList("com.example.FooATest", "com.example.FooBTest",
+                        "com.example.FooCTest")),
+                false,
+                Collections.emptyMap(),
+                "artifact",
+                "group");
+
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("supertest run#1 shard#1/2",
+                "mvn test -Dtest=com.example.FooATest,com.example.FooCTest"
+                        + " -fae -pl group:artifact");
+        expected.put("supertest run#1 shard#2/2",
+                "mvn test -Dtest=com.example.FooBTest -fae -pl group:artifact");
+        assertEquals(expected, commands);
+    }
+
+    @Test
+    void testCreateFirstRunCommandsForSubset() {
+        SuperTestMavenPlugin plugin = new SuperTestMavenPlugin();
+        plugin.mvnTestOpts = "-fae";
+
+        Map<String, String> commands = plugin.createFirstRunCommands(
+                new HashSet<>(Arrays.asList("com.example.FooTest", "com.example.BarTest")),
+                true,
+                Collections.emptyMap(),
+                "artifact",
+                "group");
+
+        assertEquals(
+                Collections.singletonMap("supertest run#1",
+                        "mvn test -Dtest=com.example.BarTest,com.example.FooTest"
+                                + " -fae -pl group:artifact"),
+                commands);
+    }
+
+    @Test
+    void testCreateFirstRunCommandsSplitsLongTestLists() {
+        SuperTestMavenPlugin plugin = new SuperTestMavenPlugin();
+        plugin.mvnTestOpts = "-fae";
+        plugin.shards = 2;
+        plugin.rerunBatchMaxLength = 30;
+
+        Map<String, String> commands = plugin.createFirstRunCommands(
+                new HashSet<>(Arrays.asList("com.example.FooATest", "com.example.FooBTest",
+                        "com.example.FooCTest", "com.example.FooDTest")),
+                false,
+                Collections.emptyMap(),
+                "artifact",
+                "group");
+
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("supertest run#1 shard#1/2 batch#1/2",
+                "mvn test -Dtest=com.example.FooATest -fae -pl group:artifact");
+        expected.put("supertest run#1 shard#2/2 batch#1/2",
+                "mvn test -Dtest=com.example.FooBTest -fae -pl group:artifact");
+        expected.put("supertest run#1 shard#1/2 batch#2/2",
+                "mvn test -Dtest=com.example.FooCTest -fae -pl group:artifact");
+        expected.put("supertest run#1 shard#2/2 batch#2/2",
+                "mvn test -Dtest=com.example.FooDTest -fae -pl group:artifact");
+        assertEquals(expected, commands);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(commands.keySet()));
+    }
+
+    @Test
+    void testCreateRerunTestGroups() {
+        SuperTestMavenPlugin plugin = new SuperTestMavenPlugin();
+        plugin.rerunParallelism = 2;
+
+        Map<String, List<String>> failures = new HashMap<>();
+        failures.put("com.example.FooTest", Arrays.asList("a", "b"));
+        failures.put("com.example.BarTest", Collections.singletonList(""));
+        failures.put("com.example.PassingTest", Collections.emptyList());
+
+        Set<String> allTestClasses = new HashSet<>(Arrays.asList("com.example.FooTest",
+                "com.example.BarTest", "com.example.PassingTest", "com.example.NotRunTest"));
+
+        Map<String, Long> durations = new HashMap<>();
+        durations.put("com.example.NotRunTest", 1000L);
+        durations.put("com.example.FooTest", 600L);
+        durations.put("com.example.BarTest", 500L);
+
+        assertEquals(
+                Arrays.asList("com.example.NotRunTest",
+                        "com.example.FooTest#a*+b*,com.example.BarTest"),
+                plugin.createRerunTestGroups(allTestClasses, failures, durations));
+
+        // the longest classes start first
+        plugin.rerunParallelism = 1;
+        assertEquals(
+                Collections.singletonList(
+                        "com.example.NotRunTest,com.example.FooTest#a*+b*,com.example.BarTest"),
+                plugin.createRerunTestGroups(allTestClasses, failures, durations));
+    }
+
+    @Test
+    void testEstimateRetryDurations() {
+        RunResult foo = new RunResult("com.example.FooTest");
+        foo.setTime(60);
+        foo.addFailedTestCase("a");
+        foo.setTestCaseTime("a", 1.5);
+        foo.addFailedTestCase("b");
+        foo.setTestCaseTime("b", 0.5);
+        RunResult bar = new RunResult("com.example.BarTest");
+        bar.setTime(30);
+        bar.addFailedTestCase("");
+
+        Map<String, List<String>> failures = new HashMap<>();
+        failures.put("com.example.FooTest", Arrays.asList("a", "b"));
+        failures.put("com.example.BarTest", Collections.singletonList(""));
+
+        Map<String, Long> expected = new HashMap<>();
+        // only the failed methods of FooTest are rerun, not the whole minute it takes
+        expected.put("com.example.FooTest", 2000L);
+        expected.put("com.example.BarTest", 30_000L);
+        expected.put("com.example.NotRunTest", 45_000L);
+        assertEquals(expected, SuperTestMavenPlugin.estimateRetryDurations(
+                Arrays.asList(foo, bar), failures,
+                Collections.singleton("com.example.NotRunTest"),
+                Collections.singletonMap("com.example.NotRunTest", 45_000L)));
+    }
+
+    @Test
+    void testSplitIntoBatches() {
+        SuperTestMavenPlugin plugin = new SuperTestMavenPlugin();
+        plugin.rerunBatchMaxLength = 30;
+
+        assertEquals(
+                Arrays.asList("com.example.A#a*+b*,com.ex.B", "com.example.LongerThanLimitTest",
+                        "com.example.C"),
+                plugin.splitIntoBatches(
+                        "com.example.A#a*+b*,com.ex.B,com.example.LongerThanLimitTest,"
+                                + "com.example.C,"));
+
+        plugin.rerunBatchMaxLength = null;
+        assertEquals(Collections.singletonList("com.example.A,com.example.B"),
+                plugin.splitIntoBatches("com.example.A,com.example.B"));
+    }
+
+    @Test
+    void testGetClassNames() {
+        assertEquals(
+                new HashSet<>(Arrays.asList("com.example.A", "com.example.B", "com.example.C")),
+                SuperTestMavenPlugin.getClassNames(
+                        Arrays.asList("com.example.A#a*+b*,com.example.B,", "com.example.C")));
+    }
+
+    @Test
+    void testIsStillFailing() {
+        Map<String, List<String>> finalFailures = new HashMap<>();
+        finalFailures.put("com.example.FooTest", Collections.singletonList("a"));
+        finalFailures.put("com.example.BarTest", Collections.emptyList());
+        finalFailures.put("com.example.BazTest", Collections.singletonList(""));
+
+        assertTrue(SuperTestMavenPlugin.isStillFailing("com.example.FooTest#a", finalFailures));
+        assertFalse(SuperTestMavenPlugin.isStillFailing("com.example.FooTest#b", finalFailures));
+        assertTrue(SuperTestMavenPlugin.isStillFailing("com.example.FooTest", finalFailures));
+        assertFalse(SuperTestMavenPlugin.isStillFailing("com.example.BarTest", finalFailures));
+        assertTrue(SuperTestMavenPlugin.isStillFailing("com.example.BazTest#a", finalFailures));
+        assertTrue(SuperTestMavenPlugin.isStillFailing("com.example.NotRun#a", finalFailures));
+    }
+
+    @Test
+    void testLogWriterBlocksWhenItsQueueIsFull() throws Exception {
+        ExecutorService logWriter = SuperTestMavenPlugin.createLogWriter(2);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            List<Integer> logged = Collections.synchronizedList(new ArrayList<>());
+            logWriter.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            logWriter.execute(() -> logged.add(1));
+            logWriter.execute(() -> logged.add(2));
+
+            Thread pump = new Thread(() -> logWriter.execute(() -> logged.add(3)));
+            pump.start();
+            pump.join(200);
+            assertTrue(pump.isAlive(), "submitting to a full queue should block");
+
+            release.countDown();
+            pump.join(5000);
+            assertFalse(pump.isAlive());
+            logWriter.submit(() -> { }).get(5, TimeUnit.SECONDS);
+            assertEquals(Arrays.asList(1, 2, 3), logged);
+        } finally {
+            logWriter.shutdownNow();
+        }
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void testHungForkIsTerminatedAndItsClassRerunOnItsOwn(@TempDir Path projectDirectory)
+            throws Exception {
+        Path mvn = projectDirectory.resolve("mvn");
+        try (InputStream in = getClass().getClassLoader()
+                .getResourceAsStream("hanging-mvn.sh")) {
+            Files.copy(in, mvn);
+        }
+        assertTrue(mvn.toFile().setExecutable(true));
+
+        Path testClasses = Files.createDirectories(
+                projectDirectory.resolve("target/test-classes/com/example"));
+        Files.createFile(testClasses.resolve("PassingTest.class"));
+        Files.createFile(testClasses.resolve("HangTest.class"));
+
+        MavenProject project = new MavenProject();
+        project.setFile(projectDirectory.resolve("pom.xml").toFile());
+        project.setGroupId("com.example");
+        project.setArtifactId("example");
+        project.getBuild().setOutputDirectory(
+                projectDirectory.resolve("target/classes").toString());
+        project.getBuild().setTestOutputDirectory(
+                projectDirectory.resolve("target/test-classes").toString());
+
+        SuperTestMavenPlugin plugin = new SuperTestMavenPlugin();
+        plugin.project = project;
+        plugin.mavenCommand = mvn.toString();
+        plugin.historyDirectory = projectDirectory.resolve("target/supertest").toFile();
+        plugin.hangIsolation = true;
+        plugin.shellNoActivityTimeout = 1;
+        plugin.hungClassTimeout = 10;
+        plugin.gracefulShutdownTimeout = 10;
+        // the first run fails since a fork was terminated, there is no retry to make up for it
+        plugin.retryRunCount = 0;
+
+        // fails the JVM with System.exit if the build fails
+        plugin.execute();
+
+        assertEquals(Arrays.asList(
+                        "run ",
+                        "fork child terminated",
+                        "helper alive",
+                        "idle fork alive",
+                        "run com.example.HangTest"),
+                Files.readAllLines(projectDirectory.resolve("events")));
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void testShardsSkipCompilationOnceTheProjectIsCompiled(@TempDir Path projectDirectory)
+            throws Exception {
+        Path mvn = projectDirectory.resolve("mvn");
+        try (InputStream in = getClass().getClassLoader()
+                .getResourceAsStream("recording-mvn.sh")) {
+            Files.copy(in, mvn);
+        }
+        assertTrue(mvn.toFile().setExecutable(true));
+
+        Path testClasses = Files.createDirectories(
+                projectDirectory.resolve("target/test-classes/com/example"));
+        Files.createFile(testClasses.resolve("FooTest.class"));
+        Files.createFile(testClasses.resolve("BarTest.class"));
+
+        MavenProject project = new MavenProject();
+        project.setFile(projectDirectory.resolve("pom.xml").toFile());
+        project.setGroupId("com.example");
+        project.setArtifactId("example");
+        project.getBuild().setOutputDirectory(
+                projectDirectory.resolve("target/classes").toString());
+        project.getBuild().setTestOutputDirectory(
+                projectDirectory.resolve("target/test-classes").toString());
+
+        SuperTestMavenPlugin plugin = new SuperTestMavenPlugin();
+        plugin.project = project;
+        plugin.mavenCommand = mvn.toString();
+        plugin.historyDirectory = projectDirectory.resolve("target/supertest").toFile();
+        plugin.shards = 2;
+        plugin.shellNoActivityTimeout = 10;
+        plugin.retryRunCount = 0;
+
+        // fails the JVM with System.exit if the build fails
+        plugin.execute();
+
+        List<String> events = Files.readAllLines(projectDirectory.resolve("events"));
+        assertEquals("test-compile  compiles", events.get(0));
+        // the shards run concurrently
+        assertEquals(
+                new HashSet<>(Arrays.asList("test com.example.BarTest skips-compilation",
+                        "test com.example.FooTest skips-compilation")),
+                new HashSet<>(events.subList(1, events.size())));
+        assertEquals(3, events.size());
+
+        List<String> timeline = Files.readAllLines(
+                projectDirectory.resolve("target/supertest/timeline.jsonl"));
+        assertTrue(timeline.get(0).contains("\"compile\":\"supertest compile\""),
+                timeline.get(0));
+        assertTrue(timeline.get(1).contains("\"attempt\":\"supertest run#1\""),
+                timeline.get(1));
+    }
+
     @Test
     void testGetTestWhenProvided() {
         SuperTestMavenPlugin plugin = new SuperTestMavenPlugin();
@@ -0,0 +1,59 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.clevertap.maven.plugins.supertest.SurefireConsoleParser.TestSetSummary;
+import org.junit.jupiter.api.Test;
+
+class SurefireConsoleParserTest {
+
+    @Test
+    void testParseFailedClass() {
+        TestSetSummary summary = SurefireConsoleParser.parse("[ERROR] Tests run: 3, Failures: 1, "
+                + "Errors: 1, Skipped: 0, Time elapsed: 1,234.5 s <<< FAILURE! - in "
+                + "com.example.FooTest");
+
+        assertEquals("com.example.FooTest", summary.getClassName());
+        assertEquals(3, summary.getTestsRun());
+        assertEquals(1, summary.getFailures());
+        assertEquals(1, summary.getErrors());
+        assertEquals(0, summary.getSkipped());
+        assertEquals(1234.5, summary.getTime(), 0.001);
+        assertTrue(summary.isFailed());
+    }
+
+    @Test
+    void testParsePassedClass() {
+        TestSetSummary summary = SurefireConsoleParser.parse("\u001B[1;32mTests run: 2\u001B[m, "
+                + "Failures: 0, Errors: 0, Skipped: 1, Time elapsed: 0.02 sec - in "
+                + "com.example.BarTest");
+
+        assertEquals("com.example.BarTest", summary.getClassName());
+        assertEquals(1, summary.getSkipped());
+        assertFalse(summary.isFailed());
+    }
+
+    @Test
+    void testParseRunningClass() {
+        assertEquals("com.example.FooTest",
+                SurefireConsoleParser.parseRunningClass("[INFO] Running com.example.FooTest"));
+        assertEquals("com.example.BarTest", SurefireConsoleParser.parseRunningClass(
+                "[\u001B[1;34mINFO\u001B[m] \u001B[1mRunning com.example.BarTest\u001B[m"));
+        assertEquals("com.example.BazTest",
+                SurefireConsoleParser.parseRunningClass("Running com.example.BazTest"));
+        assertNull(SurefireConsoleParser.parseRunningClass(
+                "[INFO] Running mvn test -Dtest=com.example.FooTest"));
+        assertNull(SurefireConsoleParser.parseRunningClass("Tests are Running now"));
+    }
+
+    @Test
+    void testIgnoreOtherLines() {
+        assertNull(SurefireConsoleParser.parse("[INFO] Running com.example.FooTest"));
+        // the totals of a run do not belong to a class
+        assertNull(SurefireConsoleParser.parse(
+                "[ERROR] Tests run: 5, Failures: 1, Errors: 0, Skipped: 0"));
+    }
+}
@@ -0,0 +1,119 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.clevertap.maven.plugins.supertest.util.ProcTree;
+import com.clevertap.maven.plugins.supertest.util.ProcessHelper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SurefireForkLocatorTest {
+    private static final List<String> CLASSES = Arrays.asList(
+            "com.example.FooTest", "com.example.BarTest", "com.example.BazTest");
+
+    @TempDir
+    Path procRoot;
+
+    @TempDir
+    Path surefireDirectory;
+
+    private SurefireForkLocator locator;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        locator = new SurefireForkLocator(
+                new ProcessHelper(Runtime.getRuntime(), new ProcTree(procRoot)));
+        writeProcess(100, 1, "mvn", "-B", "test");
+    }
+
+    @Test
+    void testLocatesForksByTheirTestSet() throws IOException {
+        writeFork(200, "com.example.FooTest");
+        writeFork(201, "com.example.BarTest");
+        // a process started by a test, running Java just like a fork
+        writeProcess(300, 200, "sh", "-c", "sleep 600");
+        writeProcess(301, 200, "java", "-jar", "target/surefire/surefirebooter9.jar");
+        // a helper process of Maven itself
+        writeProcess(400, 100, "git", "status");
+        writeProcess(500, 1, "unrelated");
+
+        Map<String, Long> expected = new HashMap<>();
+        expected.put("com.example.FooTest", 200L);
+        expected.put("com.example.BarTest", 201L);
+        assertEquals(expected, locator.locate(100, CLASSES));
+        assertEquals(Collections.singletonMap("com.example.FooTest", 200L),
+                locator.locate(100, Collections.singletonList("com.example.FooTest")));
+    }
+
+    @Test
+    void testAttributesAllClassesToTheOnlyReusedFork() throws IOException {
+        writeFork(200, null);
+
+        Map<String, Long> located = locator.locate(100, CLASSES);
+
+        assertEquals(CLASSES.size(), located.size());
+        assertTrue(located.values().stream().allMatch(pid -> pid == 200L));
+    }
+
+    @Test
+    void testDoesNotAttributeClassesToOneOfSeveralReusedForks() throws IOException {
+        writeFork(200, null);
+        writeFork(201, null);
+
+        assertTrue(locator.locate(100, CLASSES).isEmpty());
+    }
+
+    @Test
+    void testForksLaunchedByMainClass() throws IOException {
+        writeProperties("surefire201tmp", "com.example.BazTest");
+        writeProcess(201, 100, "java", "-cp", "a.jar:b.jar",
+                "org.apache.maven.surefire.booter.ForkedBooter", surefireDirectory.toString(),
+                "2024-01-01T00-00-00_000-jvmRun2", "surefire201tmp");
+        // the properties file of a fork which exited already
+        writeProcess(202, 100, "java", "-jar",
+                surefireDirectory.resolve("surefirebooter202.jar").toString(),
+                surefireDirectory.toString(), "2024-01-01T00-00-00_000-jvmRun3", "gone");
+
+        Map<Long, String> expected = new HashMap<>();
+        expected.put(201L, "com.example.BazTest");
+        expected.put(202L, null);
+        assertEquals(expected, locator.findForks(100));
+    }
+
+    private void writeFork(long pid, String testSet) throws IOException {
+        writeProperties("surefire" + pid + "tmp", testSet);
+        writeProperties("surefire_" + pid + "tmp", null);
+        writeProcess(pid, 100, "/usr/lib/jvm/bin/java", "-Xmx1g", "-jar",
+                surefireDirectory.resolve("surefirebooter" + pid + ".jar").toString(),
+                surefireDirectory.toString(), "2024-01-01T00-00-00_000-jvmRun1",
+                "surefire" + pid + "tmp", "surefire_" + pid + "tmp");
+    }
+
+    private void writeProperties(String fileName, String testSet) throws IOException {
+        final String properties = testSet != null
+                ? "preferTestsFromInStream=false\nforkTestSet=java.lang.String|" + testSet + "\n"
+                : "preferTestsFromInStream=true\n";
+        Files.write(surefireDirectory.resolve(fileName),
+                properties.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void writeProcess(long pid, long parent, String... commandLine) throws IOException {
+        Path process = Files.createDirectories(procRoot.resolve(String.valueOf(pid)));
+        Files.write(process.resolve("stat"),
+                (pid + " (" + commandLine[0] + ") S " + parent + " " + pid + " " + pid + " 0 -1")
+                        .getBytes(StandardCharsets.UTF_8));
+        Files.write(process.resolve("cmdline"),
+                (String.join("\0", commandLine) + "\0").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,161 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SurefireReportCollectorTest {
+    @TempDir
+    Path reportsDir;
+
+    @Test
+    void testCollectInParallelKeepsFileNameOrder() throws IOException, MojoExecutionException {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            files.add(writeReport(String.format("com.example.Test%02d", i), i % 3 == 0));
+        }
+
+        // the order in which files are passed in should not matter
+        Collections.shuffle(files);
+
+        SurefireReportCollector collector = new SurefireReportCollector(4);
+        try {
+            List<RunResult> results = collector.collect(files.toArray(new File[0]));
+
+            assertEquals(50, results.size());
+            for (int i = 0; i < 50; i++) {
+                RunResult result = results.get(i);
+                assertEquals(String.format("com.example.Test%02d", i), result.getClassName());
+                assertEquals(
+                        i % 3 == 0 ? Arrays.asList("a", "b") : Collections.emptyList(),
+                        result.getFailedTestCases());
+            }
+        } finally {
+            collector.shutdown();
+        }
+    }
+
+    @Test
+    void testCollectMatchesSequentialParsing() throws IOException, MojoExecutionException {
+        File[] files = new File[20];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = writeReport("com.example.Test" + i, i % 2 == 0);
+        }
+
+        SurefireReportCollector sequential = new SurefireReportCollector(1);
+        SurefireReportCollector parallel = new SurefireReportCollector(8);
+        try {
+            assertEquals(describe(sequential.collect(files)), describe(parallel.collect(files)));
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void testCollectFailsOnMalformedReport() throws IOException {
+        File good = writeReport("com.example.GoodTest", false);
+        File bad = reportsDir.resolve("TEST-com.example.BadTest.xml").toFile();
+        Files.write(bad.toPath(), "<testsuite name=".getBytes(StandardCharsets.UTF_8));
+
+        SurefireReportCollector collector = new SurefireReportCollector(2);
+        try {
+            MojoExecutionException e = assertThrows(
+                    MojoExecutionException.class,
+                    () -> collector.collect(new File[] {good, bad}));
+            assertEquals("Failed to parse surefire report! file=" + bad, e.getMessage());
+        } finally {
+            collector.shutdown();
+        }
+    }
+
+    @Test
+    void testCollectIgnoresReportsLeftOverFromEarlierBuilds()
+            throws IOException, MojoExecutionException {
+        File stale = writeReport("com.example.StaleTest", true);
+
+        SurefireReportCollector collector = new SurefireReportCollector(1);
+        collector.markRunStart(new File[] {stale});
+        File fresh = writeReport("com.example.FreshTest", true);
+
+        List<RunResult> results = collector.collect(new File[] {stale, fresh});
+        assertEquals(Collections.singletonList("com.example.FreshTest=[a, b]"), describe(results));
+    }
+
+    @Test
+    void testCollectParsesReportsRewrittenByTheRun() throws IOException, MojoExecutionException {
+        File report = writeReport("com.example.FooTest", true);
+        report.setLastModified(report.lastModified() - 10_000);
+
+        SurefireReportCollector collector = new SurefireReportCollector(1);
+        collector.markRunStart(new File[] {report});
+        assertEquals(Collections.emptyList(), collector.collect(new File[] {report}));
+
+        writeReport("com.example.FooTest", false);
+        assertEquals(
+                Collections.singletonList("com.example.FooTest=[]"),
+                describe(collector.collect(new File[] {report})));
+    }
+
+    @Test
+    void testCollectReusesIngestedReports() throws IOException, MojoExecutionException {
+        File report = writeReport("com.example.FooTest", true);
+
+        SurefireReportCollector collector = new SurefireReportCollector(1);
+        assertEquals(
+                Collections.singletonList("com.example.FooTest=[a, b]"),
+                describe(collector.collect(new File[] {report})));
+
+        // the next run does not touch the report: garbage of the same length and modification
+        // time would fail to parse, hence the cached result must be used
+        long lastModified = report.lastModified();
+        byte[] garbage = new byte[(int) report.length()];
+        Arrays.fill(garbage, (byte) '<');
+        Files.write(report.toPath(), garbage);
+        report.setLastModified(lastModified);
+
+        collector.markRunStart(new File[] {report});
+        File fresh = writeReport("com.example.BarTest", false);
+
+        assertEquals(
+                Arrays.asList("com.example.BarTest=[]", "com.example.FooTest=[a, b]"),
+                describe(collector.collect(new File[] {report, fresh})));
+    }
+
+    private File writeReport(String className, boolean failing) throws IOException {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<testsuite name=\"").append(className).append("\">\n");
+
+        // failures are written in reverse order, they are expected back sorted
+        for (String testCase : new String[] {"b", "a"}) {
+            xml.append("<testcase name=\"").append(testCase).append("\">");
+            if (failing) {
+                xml.append("<failure type=\"java.lang.AssertionError\"/>");
+            }
+            xml.append("</testcase>\n");
+        }
+        xml.append("</testsuite>");
+
+        Path file = reportsDir.resolve("TEST-" + className + ".xml");
+        Files.write(file, xml.toString().getBytes(StandardCharsets.UTF_8));
+        return file.toFile();
+    }
+
+    private static List<String> describe(List<RunResult> results) {
+        return results.stream()
+                .map(r -> r.getClassName() + "=" + r.getFailedTestCases())
+                .collect(Collectors.toList());
+    }
+}
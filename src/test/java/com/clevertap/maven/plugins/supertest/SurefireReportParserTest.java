@@ -4,12 +4,17 @@ import org.junit.jupiter.api.Test;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by Jude Pereira, at 12:48 on 04/02/2022.
@@ -27,5 +32,151 @@ public class SurefireReportParserTest {
 
         final RunResult result = new SurefireReportParser(xmlFile.toFile()).parse();
         assertEquals("com.example.FooTest", result.getClassName());
+        assertEquals(0.353, result.getTime(), 0.0001);
     }
-}
\ No newline at end of file
+
+    @Test
+    void parseTimeFallsBackToTestCaseTimes()
+            throws IOException, ParserConfigurationException, SAXException {
+        final String xmlReport = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<testsuite name=\"com.example.FooTest\">\n"
+                + "  <testcase name=\"a\" time=\"1,000.5\"/>\n"
+                + "  <testcase name=\"b\" time=\"0.25\"/>\n"
+                + "  <testcase name=\"c\" time=\"n/a\"/>\n"
+                + "</testsuite>";
+
+        final Path xmlFile = Files.createTempFile("surefire", ".xml");
+        Files.write(xmlFile, xmlReport.getBytes(StandardCharsets.UTF_8));
+
+        final RunResult result = new SurefireReportParser(xmlFile.toFile()).parse();
+        assertEquals(1000.75, result.getTime(), 0.0001);
+    }
+
+    @Test
+    void parseIgnoresFailuresNotDirectlyWithinTestCase()
+            throws IOException, ParserConfigurationException, SAXException {
+        final String xmlReport = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<testsuite name=\"com.example.FooTest\">\n"
+                + "  <properties><property name=\"error\" value=\"x\"/></properties>\n"
+                + "  <testcase name=\"passing\" classname=\"com.example.FooTest\" time=\"0.1\">\n"
+                + "    <system-out><![CDATA[<failure/> is just text here]]></system-out>\n"
+                + "  </testcase>\n"
+                + "  <testcase name=\"flaky\" classname=\"com.example.FooTest\" time=\"0.1\">\n"
+                + "    <flakyFailure message=\"boom\" type=\"java.lang.AssertionError\"/>\n"
+                + "  </testcase>\n"
+                + "  <testcase name=\"failing\" classname=\"com.example.FooTest\" time=\"0.1\">\n"
+                + "    <failure message=\"boom\" type=\"java.lang.AssertionError\">"
+                + "trace</failure>\n"
+                + "    <rerunFailure message=\"boom\" type=\"java.lang.AssertionError\"/>\n"
+                + "    <system-out>output</system-out>\n"
+                + "  </testcase>\n"
+                + "  <testcase name=\"skipped\" classname=\"com.example.FooTest\" time=\"0\">\n"
+                + "    <skipped/>\n"
+                + "  </testcase>\n"
+                + "</testsuite>";
+
+        final Path xmlFile = Files.createTempFile("surefire", ".xml");
+        Files.write(xmlFile, xmlReport.getBytes(StandardCharsets.UTF_8));
+
+        final RunResult result = new SurefireReportParser(xmlFile.toFile()).parse();
+        assertEquals("com.example.FooTest", result.getClassName());
+        assertEquals(1, result.getFailedTestCases().size());
+        assertEquals("failing", result.getFailedTestCases().get(0));
+    }
+
+    @Test
+    void parseFailureSignatures()
+            throws IOException, ParserConfigurationException, SAXException {
+        final StringBuilder longTrace = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            longTrace.append("\n\tat com.example.Deep.recurse(Deep.java:").append(i).append(')');
+        }
+
+        final String xmlReport = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<testsuite name=\"com.example.FooTest\">\n"
+                + "  <testcase name=\"failing\" classname=\"com.example.FooTest\" time=\"0.1\">\n"
+                + "    <failure message=\"expected 1\" type=\"java.lang.AssertionError\">"
+                + "java.lang.AssertionError: expected 1\n"
+                + "\tat com.example.FooTest.failing(FooTest.java:12)</failure>\n"
+                + "    <rerunFailure message=\"other\" type=\"java.lang.IllegalStateException\"/>\n"
+                + "  </testcase>\n"
+                + "  <testcase name=\"overflowing\" classname=\"com.example.FooTest\">\n"
+                + "    <error type=\"java.lang.StackOverflowError\">"
+                + "java.lang.StackOverflowError" + longTrace + "</error>\n"
+                + "  </testcase>\n"
+                + "  <testcase name=\"passing\" classname=\"com.example.FooTest\"/>\n"
+                + "</testsuite>";
+
+        final Path xmlFile = Files.createTempFile("surefire", ".xml");
+        Files.write(xmlFile, xmlReport.getBytes(StandardCharsets.UTF_8));
+
+        final RunResult result = new SurefireReportParser(xmlFile.toFile()).parse();
+        assertEquals("java.lang.AssertionError: expected # at "
+                        + "com.example.FooTest.failing(FooTest.java:12)",
+                result.getFailureSignature("failing").toString());
+        assertEquals("java.lang.StackOverflowError:  at com.example.Deep.recurse(Deep.java:0)"
+                        + " < com.example.Deep.recurse(Deep.java:1)"
+                        + " < com.example.Deep.recurse(Deep.java:2)",
+                result.getFailureSignature("overflowing").toString());
+        assertNull(result.getFailureSignature("passing"));
+        assertEquals(0.1, result.getTestCaseTime("failing"), 0.0001);
+        assertEquals(0, result.getTestCaseTime("overflowing"), 0.0001);
+        assertEquals(-1, result.getTestCaseTime("passing"), 0.0001);
+    }
+
+    @Test
+    void parseLargeReportWithCapturedOutput()
+            throws IOException, ParserConfigurationException, SAXException {
+        final int testCases = 10_000;
+        final Path xmlFile = Files.createTempFile("surefire-large", ".xml");
+        writeLargeReport(xmlFile, testCases, 2048);
+
+        final RunResult result = new SurefireReportParser(xmlFile.toFile()).parse();
+
+        // every 10th test case fails, see writeLargeReport(...)
+        final Set<String> expectedFailures = new HashSet<>();
+        for (int i = 0; i < testCases; i += 10) {
+            expectedFailures.add("test" + i);
+        }
+
+        assertEquals("com.example.LargeTest", result.getClassName());
+        assertEquals(expectedFailures, new HashSet<>(result.getFailedTestCases()));
+        assertTrue(Files.size(xmlFile) > 20L * 1024 * 1024);
+
+        Files.delete(xmlFile);
+    }
+
+    /**
+     * Writes a report with the given number of test cases, each carrying {@code outputSize}
+     * characters of captured stdout and stderr.
+     */
+    static void writeLargeReport(Path xmlFile, int testCases, int outputSize) throws IOException {
+        final StringBuilder output = new StringBuilder(outputSize);
+        for (int i = 0; i < outputSize; i++) {
+            output.append((char) ('a' + i % 26));
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(xmlFile, StandardCharsets.UTF_8)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<testsuite name=\"com.example.LargeTest\" time=\"12.5\" tests=\""
+                    + testCases + "\">\n");
+
+            for (int i = 0; i < testCases; i++) {
+                writer.write("  <testcase name=\"test" + i
+                        + "\" classname=\"com.example.LargeTest\" time=\"0.001\">\n");
+
+                if (i % 10 == 0) {
+                    writer.write("    <failure message=\"expected\""
+                            + " type=\"java.lang.AssertionError\">"
+                            + "at com.example.LargeTest.test" + i + "</failure>\n");
+                }
+
+                writer.write("    <system-out><![CDATA[" + output + "]]></system-out>\n");
+                writer.write("    <system-err><![CDATA[" + output + "]]></system-err>\n");
+                writer.write("  </testcase>\n");
+            }
+
+            writer.write("</testsuite>\n");
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestImpactAnalyzerTest {
+    private static final List<Class<?>> MAIN_CLASSES = Arrays.asList(
+            SuperTestMavenPlugin.class, ShardPlanner.class, TimingStore.class, RunResult.class);
+    private static final List<Class<?>> TEST_CLASSES = Arrays.asList(
+            SuperTestMavenPluginTest.class, ShardPlannerTest.class, TimingStoreTest.class);
+    private static final List<String> TEST_CLASS_NAMES = Arrays.asList(
+            SuperTestMavenPluginTest.class.getName(), ShardPlannerTest.class.getName(),
+            TimingStoreTest.class.getName());
+
+    @TempDir
+    Path dir;
+
+    private Path mainDir;
+    private Path testDir;
+    private Path fingerprintFile;
+    private Path pom;
+    private Path dependencyJar;
+    private Path upstreamDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mainDir = dir.resolve("classes");
+        testDir = dir.resolve("test-classes");
+        fingerprintFile = dir.resolve("supertest").resolve("class-fingerprints.properties");
+        pom = Files.write(dir.resolve("pom.xml"), "<project/>".getBytes(StandardCharsets.UTF_8));
+        dependencyJar = Files.write(dir.resolve("dependency.jar"), new byte[]{1, 2, 3});
+        upstreamDir = dir.resolve("upstream-classes");
+        copyClass(FailureSignature.class, upstreamDir);
+
+        for (Class<?> clazz : MAIN_CLASSES) {
+            copyClass(clazz, mainDir);
+        }
+
+        for (Class<?> clazz : TEST_CLASSES) {
+            copyClass(clazz, testDir);
+        }
+    }
+
+    @Test
+    void testSelectsAllWithoutFingerprints() throws IOException {
+        assertEquals(new TreeSet<>(TEST_CLASS_NAMES), analyzer().selectAffected(TEST_CLASS_NAMES));
+    }
+
+    @Test
+    void testSelectsNoneWithoutChanges() throws IOException {
+        saveBaseline();
+
+        assertTrue(analyzer().selectAffected(TEST_CLASS_NAMES).isEmpty());
+    }
+
+    @Test
+    void testSelectsTransitiveDependents() throws IOException {
+        saveBaseline();
+        change(classFile(mainDir, ShardPlanner.class));
+
+        // SuperTestMavenPluginTest depends on ShardPlanner through SuperTestMavenPlugin
+        assertEquals(
+                new TreeSet<>(Arrays.asList(ShardPlannerTest.class.getName(),
+                        SuperTestMavenPluginTest.class.getName())),
+                analyzer().selectAffected(TEST_CLASS_NAMES));
+    }
+
+    @Test
+    void testSelectsDependentsOfRemovedClasses() throws IOException {
+        saveBaseline();
+        Files.delete(classFile(mainDir, TimingStore.class));
+
+        assertEquals(
+                new TreeSet<>(Arrays.asList(SuperTestMavenPluginTest.class.getName(),
+                        TimingStoreTest.class.getName())),
+                analyzer().selectAffected(TEST_CLASS_NAMES));
+    }
+
+    @Test
+    void testSelectsChangedTestClasses() throws IOException {
+        saveBaseline();
+        change(classFile(testDir, TimingStoreTest.class));
+
+        assertEquals(new TreeSet<>(Arrays.asList(TimingStoreTest.class.getName())),
+                analyzer().selectAffected(TEST_CLASS_NAMES));
+    }
+
+    @Test
+    void testSelectsAllOnResourceChanges() throws IOException {
+        saveBaseline();
+        Files.write(testDir.resolve("test.properties"), "a=b".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(new TreeSet<>(TEST_CLASS_NAMES), analyzer().selectAffected(TEST_CLASS_NAMES));
+    }
+
+    @Test
+    void testSelectsAllOnPomChanges() throws IOException {
+        saveBaseline();
+        Files.write(pom, "<project></project>".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(new TreeSet<>(TEST_CLASS_NAMES), analyzer().selectAffected(TEST_CLASS_NAMES));
+    }
+
+    @Test
+    void testSelectsAllOnDependencyChanges() throws IOException {
+        saveBaseline();
+        Files.write(dependencyJar, new byte[]{1, 2, 4});
+
+        assertEquals(new TreeSet<>(TEST_CLASS_NAMES), analyzer().selectAffected(TEST_CLASS_NAMES));
+    }
+
+    @Test
+    void testSelectsAllOnUpstreamModuleChanges() throws IOException {
+        saveBaseline();
+        change(classFile(upstreamDir, FailureSignature.class));
+
+        assertEquals(new TreeSet<>(TEST_CLASS_NAMES), analyzer().selectAffected(TEST_CLASS_NAMES));
+    }
+
+    @Test
+    void testSelectsAllOnNewOrRemovedInputs() throws IOException {
+        saveBaseline();
+        Path newJar = Files.write(dir.resolve("new-dependency.jar"), new byte[]{1});
+
+        assertEquals(new TreeSet<>(TEST_CLASS_NAMES), new TestImpactAnalyzer(
+                mainDir.toFile(), testDir.toFile(),
+                Arrays.asList(pom.toFile(), dependencyJar.toFile(), upstreamDir.toFile(),
+                        newJar.toFile()),
+                fingerprintFile.toFile()).selectAffected(TEST_CLASS_NAMES));
+
+        Files.delete(dependencyJar);
+        assertEquals(new TreeSet<>(TEST_CLASS_NAMES), analyzer().selectAffected(TEST_CLASS_NAMES));
+    }
+
+    private void saveBaseline() throws IOException {
+        TestImpactAnalyzer analyzer = analyzer();
+        analyzer.selectAffected(TEST_CLASS_NAMES);
+        analyzer.saveFingerprints();
+    }
+
+    private TestImpactAnalyzer analyzer() {
+        return new TestImpactAnalyzer(mainDir.toFile(), testDir.toFile(),
+                Arrays.asList(pom.toFile(), dependencyJar.toFile(), upstreamDir.toFile()),
+                fingerprintFile.toFile());
+    }
+
+    private static void change(Path classFile) throws IOException {
+        // trailing bytes are ignored by the dependency reader, but change the fingerprint
+        Files.write(classFile, new byte[]{0}, StandardOpenOption.APPEND);
+    }
+
+    private static Path classFile(Path root, Class<?> clazz) {
+        return root.resolve(clazz.getName().replace('.', '/') + ".class");
+    }
+
+    private static void copyClass(Class<?> clazz, Path root) throws IOException {
+        Path target = classFile(root, clazz);
+        Files.createDirectories(target.getParent());
+
+        try (InputStream in = clazz.getResourceAsStream(clazz.getSimpleName() + ".class")) {
+            Files.copy(in, target);
+        }
+    }
+}
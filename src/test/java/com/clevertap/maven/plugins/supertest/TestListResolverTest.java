@@ -8,6 +8,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
@@ -17,6 +18,7 @@ import java.util.stream.Stream;
 import org.apache.maven.plugin.MojoFailureException;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class TestListResolverTest {
     private static final String TEST_CLASS_DIR = "target/sample-test-classes";
@@ -148,6 +150,57 @@ class TestListResolverTest {
                 "Method filter prohibited in includes|excludes parameter:AnotherNestedTest#test()");
     }
 
+    @Test
+    void testScanDirectoriesInParallel() throws MojoFailureException {
+        assertEquals(
+                new HashSet<>(new TestListResolver(null, null, null, TEST_CLASS_DIR)
+                        .scanDirectories()),
+                new HashSet<>(new TestListResolver(null, null, null, TEST_CLASS_DIR, null, 4)
+                        .scanDirectories()));
+    }
+
+    @Test
+    void testScanDirectoriesReusesCacheWhileKeyMatches(@TempDir Path dir)
+            throws MojoFailureException, IOException {
+        Path testClassDir = Files.createDirectories(dir.resolve("test-classes/nested"));
+        Files.createFile(testClassDir.resolve("FooTest.class"));
+        File cacheFile = dir.resolve("supertest-test-classes.txt").toFile();
+
+        assertEquals(Collections.singletonList("nested.FooTest"),
+                newCachingResolver(null, dir, cacheFile).scanDirectories());
+
+        // a cache hit returns whatever is cached, regardless of the directory contents
+        List<String> cache = Files.readAllLines(cacheFile.toPath());
+        Files.write(cacheFile.toPath(), Arrays.asList(cache.get(0), "nested.CachedTest"));
+        assertEquals(Collections.singletonList("nested.CachedTest"),
+                newCachingResolver(null, dir, cacheFile).scanDirectories());
+
+        // other filters
+        assertEquals(Collections.emptyList(),
+                newCachingResolver(Collections.singletonList("**/Bar*"), dir, cacheFile)
+                        .scanDirectories());
+
+        // another file
+        Files.createFile(testClassDir.resolve("BarTest.class"));
+        assertEquals(new HashSet<>(Arrays.asList("nested.FooTest", "nested.BarTest")),
+                new HashSet<>(newCachingResolver(null, dir, cacheFile).scanDirectories()));
+
+        // a recompiled file
+        Path fooTest = testClassDir.resolve("FooTest.class");
+        Files.setLastModifiedTime(fooTest, FileTime.fromMillis(
+                Files.getLastModifiedTime(fooTest).toMillis() + 60_000));
+        Files.write(cacheFile.toPath(), Arrays.asList(
+                Files.readAllLines(cacheFile.toPath()).get(0), "nested.CachedTest"));
+        assertEquals(new HashSet<>(Arrays.asList("nested.FooTest", "nested.BarTest")),
+                new HashSet<>(newCachingResolver(null, dir, cacheFile).scanDirectories()));
+    }
+
+    private static TestListResolver newCachingResolver(
+            List<String> includes, Path dir, File cacheFile) throws MojoFailureException {
+        return new TestListResolver(
+                includes, null, null, dir.resolve("test-classes").toString(), cacheFile, 1);
+    }
+
     // creates a few classes to be used for testing the resolver
     private static void createSampleTestClasses() throws IOException {
         // clean-up any old copies of the sample test dir
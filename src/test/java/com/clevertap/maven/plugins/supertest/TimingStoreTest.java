@@ -0,0 +1,66 @@
+package com.clevertap.maven.plugins.supertest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TimingStoreTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testLoadWhenStoreDoesNotExist() throws IOException {
+        TimingStore store = new TimingStore(dir.resolve("missing.properties").toFile()).load();
+        assertTrue(store.getDurations().isEmpty());
+    }
+
+    @Test
+    void testSaveAndLoad() throws IOException {
+        File file = dir.resolve("nested").resolve("timings.properties").toFile();
+
+        TimingStore store = new TimingStore(file);
+        store.update(Arrays.asList(result("com.example.FooTest", 1.5),
+                result("com.example.Bar$Test", 0.0004)));
+        store.save();
+
+        Map<String, Long> expected = new HashMap<>();
+        expected.put("com.example.FooTest", 1500L);
+        expected.put("com.example.Bar$Test", 0L);
+        assertEquals(expected, new TimingStore(file).load().getDurations());
+    }
+
+    @Test
+    void testUpdateKeepsDurationsOfClassesNotRunAgain() throws IOException {
+        File file = dir.resolve("timings.properties").toFile();
+        Files.write(file.toPath(), ("# comment\n"
+                + "com.example.FooTest=100\n"
+                + "com.example.BarTest=200\n"
+                + "malformed\n"
+                + "com.example.BazTest=abc\n").getBytes(StandardCharsets.UTF_8));
+
+        TimingStore store = new TimingStore(file).load();
+        store.update(Collections.singletonList(result("com.example.FooTest", 2)));
+
+        Map<String, Long> expected = new HashMap<>();
+        expected.put("com.example.FooTest", 2000L);
+        expected.put("com.example.BarTest", 200L);
+        assertEquals(expected, store.getDurations());
+    }
+
+    private static RunResult result(String className, double time) {
+        RunResult result = new RunResult(className);
+        result.setTime(time);
+        return result;
+    }
+}
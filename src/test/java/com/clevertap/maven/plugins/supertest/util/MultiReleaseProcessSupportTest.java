@@ -0,0 +1,120 @@
+package com.clevertap.maven.plugins.supertest.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+/**
+ * Tests the Java 9+ variant of {@link ProcessSupport}, which the multi-release jar uses instead
+ * of the Java 8 variant on the test classpath.
+ */
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class MultiReleaseProcessSupportTest {
+    private URLClassLoader classLoader;
+    private Class<?> processSupport;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        assumeTrue(!System.getProperty("java.specification.version").startsWith("1."),
+                "the Java 9 variant needs Java 9+");
+
+        final Path classes = Paths.get(ProcessSupport.class.getProtectionDomain()
+                .getCodeSource().getLocation().toURI());
+        final Path java9Classes = classes.resolve("META-INF/versions/9");
+        assertTrue(Files.isDirectory(java9Classes), "missing " + java9Classes);
+
+        // the Java 9 variant first, the classes it shares with the Java 8 one next
+        classLoader = new URLClassLoader(
+                new URL[] {java9Classes.toUri().toURL(), classes.toUri().toURL()}, null);
+        processSupport = Class.forName(ProcessSupport.class.getName(), true, classLoader);
+        assertEquals(java9Classes.toUri().toURL(),
+                processSupport.getProtectionDomain().getCodeSource().getLocation());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (classLoader != null) {
+            classLoader.close();
+        }
+    }
+
+    @Test
+    void testGetPid() throws Exception {
+        final Process process = new ProcessBuilder("sleep", "5").start();
+        try {
+            assertEquals(new ProcessHelper().getPid(process),
+                    invoke("getPid", Process.class, process));
+        } finally {
+            process.destroy();
+        }
+    }
+
+    @Test
+    void testProcessTableAndTerminate() throws Exception {
+        assertNotNull(invoke("getProcessTable"), "the JVM should have a process table");
+
+        final Process process = new ProcessBuilder("sh", "-c", "sleep 30 & sleep 30 & wait")
+                .start();
+        try {
+            final long pid = new ProcessHelper().getPid(process);
+
+            List<Long> children = Collections.emptyList();
+            for (int i = 0; i < 50 && children.size() < 2; i++) {
+                Thread.sleep(100);
+                children = readChildren(pid).getOrDefault(pid, Collections.emptyList());
+            }
+            assertEquals(2, children.size());
+            assertEquals(children, ProcTree.findLeaves(readChildren(pid), pid));
+
+            assertEquals(true, invoke("terminate", List.class, children));
+            assertTrue(process.waitFor(10, TimeUnit.SECONDS),
+                    "the parent should exit once its children are terminated");
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    @Test
+    void testReadChildrenOfExitedProcess() throws Exception {
+        final Process process = new ProcessBuilder("true").start();
+        final long pid = new ProcessHelper().getPid(process);
+        assertTrue(process.waitFor(10, TimeUnit.SECONDS));
+
+        assertTrue(readChildren(pid).isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, List<Long>> readChildren(long pid) throws Exception {
+        return (Map<Long, List<Long>>) invoke("readChildren", long.class, pid);
+    }
+
+    private Object invoke(String name) throws Exception {
+        final Method method = processSupport.getDeclaredMethod(name);
+        method.setAccessible(true);
+        return method.invoke(null);
+    }
+
+    private Object invoke(String name, Class<?> parameterType, Object argument)
+            throws Exception {
+        final Method method = processSupport.getDeclaredMethod(name, parameterType);
+        method.setAccessible(true);
+        return method.invoke(null, argument);
+    }
+}
@@ -0,0 +1,136 @@
+package com.clevertap.maven.plugins.supertest.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProcTreeTest {
+    @TempDir
+    Path procRoot;
+
+    @Test
+    void testGetLeaves() throws IOException {
+        writeStat(1, 0, "init");
+        writeStat(100, 1, "mvn");
+        writeStat(200, 100, "java");
+        writeStat(201, 100, "java (fork) 1");
+        writeStat(300, 200, "sh");
+        writeStat(400, 1, "unrelated");
+        Files.createDirectories(procRoot.resolve("self"));
+        Files.createDirectories(procRoot.resolve("500"));
+
+        assertEquals(new HashSet<>(Arrays.asList(201L, 300L)),
+                new HashSet<>(new ProcTree(procRoot).getLeaves(100)));
+        assertTrue(new ProcTree(procRoot).getLeaves(300).isEmpty());
+    }
+
+    @Test
+    void testReadParentPid() throws IOException {
+        Path stat = procRoot.resolve("stat");
+        Files.write(stat, "42 (a) b) (c) S 7 42 42 0 -1".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(7, ProcTree.readParentPid(stat));
+        assertEquals(-1, ProcTree.readParentPid(procRoot.resolve("missing")));
+    }
+
+    @Test
+    void testReadCommandLine() throws IOException {
+        Path process = Files.createDirectories(procRoot.resolve("42"));
+        Files.write(process.resolve("cmdline"),
+                "java\0-jar\0/tmp/a b/surefirebooter1.jar\0\0".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(Arrays.asList("java", "-jar", "/tmp/a b/surefirebooter1.jar", ""),
+                new ProcTree(procRoot).readCommandLine(42));
+        assertTrue(new ProcTree(procRoot).readCommandLine(43).isEmpty());
+    }
+
+    @Test
+    void testLargeTreeIsReadInOnePass() throws IOException {
+        // a Maven process with 16 forks, each with a few helper processes
+        writeStat(100, 1, "mvn");
+        int pid = 1000;
+        for (int fork = 0; fork < 16; fork++) {
+            int forkPid = pid++;
+            writeStat(forkPid, 100, "java");
+
+            for (int helper = 0; helper < 4; helper++) {
+                writeStat(pid++, forkPid, "helper");
+            }
+        }
+        for (int other = 0; other < 500; other++) {
+            writeStat(pid++, 1, "other");
+        }
+
+        ProcTree procTree = new ProcTree(procRoot);
+        long start = System.nanoTime();
+        List<Long> leaves = procTree.getLeaves(100);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(64, leaves.size());
+        assertTrue(elapsedMillis < 5000, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void testShutdownLatency() throws Exception {
+        assumeTrue(new ProcTree(Paths.get("/proc")).isAvailable());
+
+        // a parent with two children, like Maven with its forks
+        Process parent = new ProcessBuilder("sh", "-c", "echo $$; sleep 60 & sleep 60 & wait")
+                .start();
+        try {
+            long pid;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(parent.getInputStream(), StandardCharsets.UTF_8))) {
+                pid = Long.parseLong(reader.readLine().trim());
+
+                ProcessHelper processHelper = new ProcessHelper();
+                List<Long> leaves = waitForLeaves(processHelper, pid, 2);
+
+                long start = System.nanoTime();
+                processHelper.sendSIGTERM(leaves).waitFor();
+                boolean exited = parent.waitFor(10, TimeUnit.SECONDS);
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+                assertTrue(exited, "the parent should exit once its children are terminated");
+                assertTrue(elapsedMillis < 5000, "took " + elapsedMillis + " ms");
+            }
+        } finally {
+            parent.destroyForcibly();
+        }
+    }
+
+    private static List<Long> waitForLeaves(ProcessHelper processHelper, long pid, int count)
+            throws InterruptedException {
+        List<Long> leaves = processHelper.getLeaves(pid);
+        for (int i = 0; i < 100 && leaves.size() < count; i++) {
+            Thread.sleep(50);
+            leaves = processHelper.getLeaves(pid);
+        }
+
+        Set<Long> uniqueLeaves = new HashSet<>(leaves);
+        assertEquals(count, uniqueLeaves.size());
+        return leaves;
+    }
+
+    private void writeStat(long pid, long parent, String comm) throws IOException {
+        Path process = Files.createDirectories(procRoot.resolve(String.valueOf(pid)));
+        Files.write(process.resolve("stat"),
+                (pid + " (" + comm + ") S " + parent + " " + pid + " " + pid + " 0 -1 4194304")
+                        .getBytes(StandardCharsets.UTF_8));
+    }
+}
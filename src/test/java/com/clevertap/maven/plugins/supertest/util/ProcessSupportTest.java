@@ -0,0 +1,48 @@
+package com.clevertap.maven.plugins.supertest.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class ProcessSupportTest {
+    @Test
+    void testGetPid() throws Exception {
+        final Process process = new ProcessBuilder("sleep", "5").start();
+        try {
+            assertTrue(ProcessSupport.getPid(process) > 0);
+            assertTrue(new ProcessHelper().isUnixProcess(process));
+        } finally {
+            process.destroy();
+        }
+    }
+
+    @Test
+    void testGetLeavesAndTerminate() throws Exception {
+        final Process process = new ProcessBuilder("sh", "-c", "sleep 30 & sleep 30 & wait")
+                .start();
+        try {
+            final ProcessHelper processHelper = new ProcessHelper();
+            final long pid = processHelper.getPid(process);
+
+            List<Long> leaves = Collections.emptyList();
+            for (int i = 0; i < 50 && leaves.size() < 2; i++) {
+                Thread.sleep(100);
+                leaves = processHelper.getLeaves(pid);
+            }
+            assertEquals(2, leaves.size());
+
+            processHelper.terminate(leaves);
+            assertTrue(process.waitFor(10, TimeUnit.SECONDS),
+                    "the parent should exit once its children are terminated");
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.clevertap.maven.plugins.supertest.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SystemResourcesTest {
+    private static final long MB = 1024 * 1024;
+
+    @TempDir
+    Path root;
+
+    private Path procRoot;
+    private Path cgroupRoot;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        procRoot = Files.createDirectories(root.resolve("proc"));
+        cgroupRoot = Files.createDirectories(root.resolve("cgroup"));
+
+        write(procRoot.resolve("stat"), "cpu  1 2 3\ncpu0 1 2 3\ncpu1 1 2 3\ncpu2 1 2 3\n"
+                + "cpu3 1 2 3\nintr 1\n");
+        write(procRoot.resolve("loadavg"), "2.50 1.00 0.50 3/500 12345\n");
+        write(procRoot.resolve("meminfo"), "MemTotal:       16384000 kB\n"
+                + "MemFree:         1024000 kB\nMemAvailable:    8192000 kB\n");
+    }
+
+    @Test
+    void testCgroupV2() throws IOException {
+        write(cgroupRoot.resolve("cgroup.controllers"), "cpu memory");
+        write(cgroupRoot.resolve("cpu.max"), "150000 100000");
+        write(cgroupRoot.resolve("memory.max"), String.valueOf(4096 * MB));
+        write(cgroupRoot.resolve("memory.current"), String.valueOf(3072 * MB));
+
+        SystemResources resources = new SystemResources(procRoot, cgroupRoot);
+        assertEquals(1.5, resources.getCpuLimit());
+        assertEquals(4, resources.getMachineCpus());
+        assertEquals(4096 * MB, resources.getMemoryLimit());
+        // the cgroup has less left than the machine
+        assertEquals(1024 * MB, resources.getAvailableMemory());
+        assertEquals(2.5, resources.getLoadAverage());
+    }
+
+    @Test
+    void testCgroupV2WithoutLimits() throws IOException {
+        write(cgroupRoot.resolve("cgroup.controllers"), "cpu memory");
+        write(cgroupRoot.resolve("cpu.max"), "max 100000");
+        write(cgroupRoot.resolve("memory.max"), "max");
+
+        SystemResources resources = new SystemResources(procRoot, cgroupRoot);
+        assertEquals(4, resources.getCpuLimit());
+        assertEquals(-1, resources.getMemoryLimit());
+        assertEquals(8192000 * 1024L, resources.getAvailableMemory());
+    }
+
+    @Test
+    void testCgroupV1() throws IOException {
+        write(Files.createDirectories(cgroupRoot.resolve("cpu")).resolve("cpu.cfs_quota_us"),
+                "200000");
+        write(cgroupRoot.resolve("cpu/cpu.cfs_period_us"), "100000");
+        write(Files.createDirectories(cgroupRoot.resolve("memory"))
+                .resolve("memory.limit_in_bytes"), String.valueOf(2048 * MB));
+        write(cgroupRoot.resolve("memory/memory.usage_in_bytes"), String.valueOf(512 * MB));
+
+        SystemResources resources = new SystemResources(procRoot, cgroupRoot);
+        assertEquals(2, resources.getCpuLimit());
+        assertEquals(2048 * MB, resources.getMemoryLimit());
+        assertEquals(1536 * MB, resources.getAvailableMemory());
+    }
+
+    @Test
+    void testCgroupV1WithoutLimits() throws IOException {
+        write(Files.createDirectories(cgroupRoot.resolve("cpu")).resolve("cpu.cfs_quota_us"),
+                "-1");
+        write(Files.createDirectories(cgroupRoot.resolve("memory"))
+                .resolve("memory.limit_in_bytes"), "9223372036854771712");
+
+        SystemResources resources = new SystemResources(procRoot, cgroupRoot);
+        assertEquals(4, resources.getCpuLimit());
+        assertEquals(-1, resources.getMemoryLimit());
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,61 @@
+#!/bin/sh
+# A fake mvn, run from the project directory it's copied to: com.example.HangTest hangs in its
+# fork, unless it's run on its own. Outcomes are appended to the file "events".
+dir=$(cd "$(dirname "$0")" && pwd)
+reports="$dir/target/surefire-reports"
+surefire="$dir/target/surefire"
+mkdir -p "$reports" "$surefire"
+
+tests=
+for arg in "$@"; do
+    case "$arg" in
+        -Dtest=*) tests="${arg#-Dtest=}" ;;
+    esac
+done
+echo "run $tests" >> "$dir/events"
+
+pass() {
+    echo "Running $1"
+    cat > "$reports/TEST-$1.xml" <<REPORT
+<?xml version="1.0" encoding="UTF-8"?>
+<testsuite name="$1" time="0.01" tests="1" errors="0" skipped="0" failures="0">
+    <testcase name="test" classname="$1" time="0.01"/>
+</testsuite>
+REPORT
+    echo "Tests run: 1, Failures: 0, Errors: 0, Skipped: 0, Time elapsed: 0.01 s - in $1"
+}
+
+if [ "$tests" = "com.example.HangTest" ]; then
+    pass com.example.HangTest
+    exit 0
+fi
+
+# a helper process of Maven, and a reused fork which waits for classes; like the fork of the
+# hanging class, they do not hold on to the output, which would keep it open once mvn exits
+sleep 60 > /dev/null 2>&1 &
+helper=$!
+echo "preferTestsFromInStream=true" > "$surefire/surefire1tmp"
+sh -c 'sleep 60; :' java -jar "$surefire/surefirebooter1.jar" "$surefire" jvmRun1 surefire1tmp \
+        > /dev/null 2>&1 &
+idle=$!
+
+# the fork of the hanging class, with a process of its own
+echo "forkTestSet=java.lang.String|com.example.HangTest" > "$surefire/surefire2tmp"
+sh -c 'sleep 60 & echo $! > "$0/fork-child"; wait' "$dir" \
+        java -jar "$surefire/surefirebooter2.jar" "$surefire" jvmRun2 surefire2tmp > /dev/null 2>&1 &
+hung=$!
+
+pass com.example.PassingTest
+echo "Running com.example.HangTest"
+wait $hung
+
+for i in 1 2 3 4 5 6 7 8 9 10; do
+    kill -0 "$(cat "$dir/fork-child")" 2>/dev/null || break
+    sleep 0.5
+done
+kill -0 "$(cat "$dir/fork-child")" 2>/dev/null || echo "fork child terminated" >> "$dir/events"
+kill -0 $helper 2>/dev/null && echo "helper alive" >> "$dir/events"
+kill -0 $idle 2>/dev/null && echo "idle fork alive" >> "$dir/events"
+kill $helper $idle
+echo "[ERROR] The forked VM terminated without properly saying goodbye."
+exit 1
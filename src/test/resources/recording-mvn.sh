@@ -0,0 +1,28 @@
+#!/bin/sh
+# A fake mvn, run from the project directory it's copied to: every class in -Dtest passes. The
+# goal, the tests and whether compilation is skipped are appended to the file "events".
+dir=$(cd "$(dirname "$0")" && pwd)
+reports="$dir/target/surefire-reports"
+mkdir -p "$reports"
+
+goal=$1
+tests=
+compilation=compiles
+for arg in "$@"; do
+    case "$arg" in
+        -Dtest=*) tests="${arg#-Dtest=}" ;;
+        -Dmaven.main.skip=true) compilation=skips-compilation ;;
+    esac
+done
+echo "$goal $tests $compilation" >> "$dir/events"
+
+for class in $(echo "$tests" | tr ',' ' '); do
+    echo "Running $class"
+    cat > "$reports/TEST-$class.xml" <<REPORT
+<?xml version="1.0" encoding="UTF-8"?>
+<testsuite name="$class" time="0.01" tests="1" errors="0" skipped="0" failures="0">
+    <testcase name="test" classname="$class" time="0.01"/>
+</testsuite>
+REPORT
+    echo "Tests run: 1, Failures: 0, Errors: 0, Skipped: 0, Time elapsed: 0.01 s - in $class"
+done